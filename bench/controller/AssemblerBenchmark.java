@@ -0,0 +1,125 @@
+package controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import model.utility.ProgramGenerator;
+
+/**
+ * End to end JMH benchmark of pass one, pass two and the whole assemble path
+ * on generated programs of 1k to 100k lines, in restricted and free format
+ * mode. Larger generated programs fill the address space and are mostly
+ * comments past that, so they would not measure more code.
+ *
+ * It lives in the controller package so it can drive passOne() and passTwo()
+ * separately. main() runs every benchmark with the gc profiler attached so
+ * the allocation rate is reported next to the throughput.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AssemblerBenchmark {
+
+	@Param({ "1000", "10000", "100000" })
+	public int lines;
+
+	@Param({ "true", "false" })
+	public boolean restricted;
+
+	private static final long SEED = 42;
+
+	private String program;
+	private Controller controller;
+	private Path outputDirectory;
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder().include(AssemblerBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class).build();
+		new Runner(options).run();
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		program = new ProgramGenerator(SEED).generate(lines, restricted);
+		outputDirectory = Files.createTempDirectory("sicxe-bench");
+		controller = new Controller();
+		controller.prepareData();
+		controller.setOutputPaths(outputDirectory.resolve("listFile.txt").toString(),
+				outputDirectory.resolve("symTable.txt").toString(), outputDirectory.resolve("objFile.o").toString());
+		// a program with errors would only measure the error path of pass two
+		controller.assemble(program, restricted);
+		if (!controller.isNoErrors())
+			throw new IllegalStateException("generated program of " + lines + " lines does not assemble cleanly");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		File[] files = outputDirectory.toFile().listFiles();
+		if (files != null)
+			for (File file : files)
+				file.delete();
+		outputDirectory.toFile().delete();
+	}
+
+	@Benchmark
+	public boolean assemble() {
+		controller.assemble(program, restricted);
+		return controller.isNoErrors();
+	}
+
+	@Benchmark
+	public Controller passOne() throws IOException {
+		controller.newSession();
+		controller.passOne(new StringReader(program), restricted);
+		return controller;
+	}
+
+	/**
+	 * Pass two needs the tables of a fresh pass one, which is run outside of the
+	 * measurement before every invocation.
+	 */
+	@State(Scope.Thread)
+	public static class PassOneDone {
+
+		Controller controller;
+
+		@Setup(Level.Invocation)
+		public void runPassOne(AssemblerBenchmark benchmark) throws IOException {
+			controller = benchmark.controller;
+			controller.newSession();
+			controller.passOne(new StringReader(benchmark.program), benchmark.restricted);
+		}
+	}
+
+	@Benchmark
+	public boolean passTwo(PassOneDone state) {
+		state.controller.passTwo();
+		return state.controller.isNoErrors();
+	}
+}
@@ -0,0 +1,301 @@
+package controller;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import model.Diagnostic;
+import model.utility.Utility;
+
+/**
+ * Headless entry point which assembles every source file of a directory (or
+ * matched by a glob) on a fork-join pool sized to the number of cores. The
+ * listing, object and symbol files of each program are written next to its
+ * source as NAME.lst, NAME.o and NAME.sym.
+ *
+ * With -check the programs are only checked: nothing is written and every
+ * error is printed as FILE:LINE: MESSAGE.
+ *
+ * With -cache the files of every program are kept in a ResultCache in the
+ * given directory, a source assembled before is then only copied from it.
+ * -cache-size limits the cache on disk, in megabytes.
+ *
+ * usage: BatchAssembler [-free] [-check] [-cache &lt;directory&gt;
+ * [-cache-size &lt;megabytes&gt;]] &lt;directory | glob&gt;...
+ */
+public class BatchAssembler {
+
+	private static final String SOURCE_EXTENSION = ".txt";
+	private static final String USAGE = "usage: BatchAssembler [-free] [-check] [-cache <directory> [-cache-size <megabytes>]] <directory | glob>...";
+	private static final long MEGABYTE = 1024 * 1024;
+	private static final long DEFAULT_CACHE_SIZE = 256 * MEGABYTE;
+	// entries kept in memory in front of the disk
+	private static final long CACHE_MEMORY_SIZE = 64 * MEGABYTE;
+
+	private final boolean restricted;
+	private final boolean checkOnly;
+	private final AtomicInteger assembled = new AtomicInteger();
+	private final AtomicInteger failed = new AtomicInteger();
+	private final AtomicInteger cached = new AtomicInteger();
+	private ResultCache cache;
+
+	public BatchAssembler(boolean restricted) {
+		this(restricted, false);
+	}
+
+	/**
+	 * @param checkOnly
+	 *            report the errors of each program without assembling it.
+	 */
+	public BatchAssembler(boolean restricted, boolean checkOnly) {
+		this.restricted = restricted;
+		this.checkOnly = checkOnly;
+	}
+
+	/**
+	 * @param cache
+	 *            keeps the files of the programs between runs, null for none.
+	 */
+	public void setCache(ResultCache cache) {
+		this.cache = cache;
+	}
+
+	public static void main(String[] args) {
+		boolean restricted = true;
+		boolean checkOnly = false;
+		String cacheDirectory = null;
+		long cacheSize = DEFAULT_CACHE_SIZE;
+		List<String> targets = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("-free"))
+				restricted = false;
+			else if (arg.equals("-check"))
+				checkOnly = true;
+			else if (arg.equals("-cache")) {
+				if (i + 1 == args.length)
+					usage();
+				cacheDirectory = args[++i];
+			} else if (arg.equals("-cache-size")) {
+				long megabytes = i + 1 < args.length && Utility.isNumeric(args[i + 1]) ? Long.parseLong(args[i + 1]) : 0;
+				if (megabytes <= 0 || megabytes > Long.MAX_VALUE / MEGABYTE)
+					usage();
+				cacheSize = megabytes * MEGABYTE;
+				i++;
+			} else
+				targets.add(arg);
+		}
+		if (targets.isEmpty())
+			usage();
+
+		List<Path> sources = new ArrayList<>();
+		for (String target : targets) {
+			try {
+				sources.addAll(collectSources(target));
+			} catch (IOException e) {
+				System.err.println(e);
+			}
+		}
+		Collections.sort(sources);
+
+		new Controller().prepareData();
+		BatchAssembler batch = new BatchAssembler(restricted, checkOnly);
+		if (cacheDirectory != null) {
+			try {
+				batch.setCache(new ResultCache(Paths.get(cacheDirectory), cacheSize, CACHE_MEMORY_SIZE));
+			} catch (IOException e) {
+				System.err.println("cache disabled: " + e);
+			}
+		}
+		batch.run(sources);
+	}
+
+	private static void usage() {
+		System.err.println(USAGE);
+		System.exit(2);
+	}
+
+	/**
+	 * @param target
+	 *            a directory, a single file or a glob such as res/Examples/*.txt
+	 *
+	 * @return every source file the target refers to.
+	 */
+	public static List<Path> collectSources(String target) throws IOException {
+		List<Path> sources = new ArrayList<>();
+		Path path = Paths.get(target);
+		if (Files.isDirectory(path)) {
+			try (Stream<Path> files = Files.list(path)) {
+				files.filter(Files::isRegularFile).filter(p -> p.toString().endsWith(SOURCE_EXTENSION))
+						.forEach(sources::add);
+			}
+		} else if (Files.isRegularFile(path)) {
+			sources.add(path);
+		} else {
+			// walk from the deepest directory that has no wildcard in it
+			Path root = Paths.get(target.substring(0, globRootLength(target))).toAbsolutePath();
+			PathMatcher matcher = FileSystems.getDefault()
+					.getPathMatcher("glob:" + Paths.get(target).toAbsolutePath().toString());
+			if (!Files.isDirectory(root))
+				return sources;
+			try (Stream<Path> files = Files.walk(root)) {
+				files.filter(Files::isRegularFile).filter(matcher::matches).forEach(sources::add);
+			}
+		}
+		return sources;
+	}
+
+	private static int globRootLength(String glob) {
+		int end = glob.length();
+		for (int i = 0; i < glob.length(); i++) {
+			char c = glob.charAt(i);
+			if (c == '*' || c == '?' || c == '[' || c == '{') {
+				end = i;
+				break;
+			}
+		}
+		int separator = Math.max(glob.lastIndexOf('/', end), glob.lastIndexOf('\\', end));
+		return separator < 0 ? 0 : separator + 1;
+	}
+
+	public void run(List<Path> sources) {
+		int threads = Runtime.getRuntime().availableProcessors();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		long start = System.nanoTime();
+		pool.invoke(new AssembleTask(sources, 0, sources.size()));
+		long elapsed = System.nanoTime() - start;
+		pool.shutdown();
+
+		double seconds = elapsed / 1e9;
+		System.out.println("=================\nBATCH SUMMARY\n=================");
+		System.out.println("Files:      " + sources.size() + " (" + failed.get() + " with errors)");
+		if (cache != null)
+			System.out.println("Cached:     " + cached.get());
+		System.out.println("Threads:    " + threads);
+		System.out.printf("Wall time:  %.3f s%n", seconds);
+		System.out.printf("Throughput: %.1f files/s%n", seconds == 0 ? 0.0 : assembled.get() / seconds);
+	}
+
+	private void assembleFile(Path source) {
+		byte[] bytes;
+		String program;
+		try {
+			bytes = Files.readAllBytes(source);
+			// one char per byte, so the outputs do not depend on the platform
+			program = new String(bytes, StandardCharsets.ISO_8859_1);
+		} catch (IOException e) {
+			System.err.println(e);
+			failed.incrementAndGet();
+			return;
+		}
+		if (checkOnly) {
+			checkFile(source, program);
+			return;
+		}
+		String name = source.getFileName().toString();
+		int dot = name.lastIndexOf('.');
+		String base = source.resolveSibling(dot > 0 ? name.substring(0, dot) : name).toString();
+
+		Path listing = Paths.get(base + ".lst");
+		Path symbolTable = Paths.get(base + ".sym");
+		Path objectFile = Paths.get(base + ".o");
+
+		String key = cache == null ? null : cache.key(bytes, restricted);
+		if (key != null) {
+			ResultCache.Result result = cache.get(key);
+			if (result != null) {
+				try {
+					result.write(listing, symbolTable, objectFile);
+					cached.incrementAndGet();
+					report(source, result.isNoErrors());
+					return;
+				} catch (IOException e) {
+					System.err.println(e);
+				}
+			}
+		}
+
+		Controller controller = new Controller();
+		controller.setOutputPaths(listing.toString(), symbolTable.toString(), objectFile.toString());
+		controller.setOutputCharset(StandardCharsets.ISO_8859_1);
+		controller.assemble(program, restricted);
+		if (!controller.isNoErrors()) {
+			// an object file of an earlier run would be taken for this one's
+			try {
+				Files.deleteIfExists(objectFile);
+			} catch (IOException e) {
+				System.err.println(e);
+			}
+		}
+		if (key != null && controller.isComplete()) {
+			try {
+				cache.put(key, ResultCache.Result.read(controller.isNoErrors(), listing, symbolTable, objectFile));
+			} catch (IOException e) {
+				System.err.println(e);
+			}
+		}
+		report(source, controller.isNoErrors());
+	}
+
+	private void report(Path source, boolean noErrors) {
+		assembled.incrementAndGet();
+		if (!noErrors)
+			failed.incrementAndGet();
+		System.out.println((noErrors ? "OK     " : "ERRORS ") + source);
+	}
+
+	private void checkFile(Path source, String program) {
+		List<Diagnostic> diagnostics;
+		try {
+			diagnostics = new Controller().check(program, restricted);
+		} catch (Exception e) {
+			System.err.println(source + ": " + e);
+			failed.incrementAndGet();
+			return;
+		}
+		assembled.incrementAndGet();
+		if (!diagnostics.isEmpty())
+			failed.incrementAndGet();
+		StringBuilder report = new StringBuilder();
+		for (Diagnostic diagnostic : diagnostics)
+			report.append(source).append(':').append(diagnostic).append('\n');
+		report.append(diagnostics.isEmpty() ? "OK     " : "ERRORS ").append(source);
+		System.out.println(report);
+	}
+
+	private class AssembleTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<Path> sources;
+		private final int from;
+		private final int to;
+
+		AssembleTask(List<Path> sources, int from, int to) {
+			this.sources = sources;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				assembleFile(sources.get(from));
+			} else if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new AssembleTask(sources, from, middle), new AssembleTask(sources, middle, to));
+			}
+		}
+	}
+}
@@ -1,56 +1,148 @@
 package controller;
 
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CancellationException;
+import java.util.function.DoubleConsumer;
 
+import model.AssemblySession;
 import model.CommandInfo;
+import model.Diagnostic;
+import model.EncodedLine;
 import model.Instruction;
+import model.InstructionEncoder;
 import model.Line;
+import model.LineStore;
+import model.ListingWriter;
 import model.Literal;
 import model.ProgramCounter;
+import model.SourceLines;
 import model.SourceReader;
 import model.Symbol;
+import model.TextRecordWriter;
+import model.enums.DirectiveType;
 import model.enums.Format;
 import model.tables.DirectiveTable;
 import model.tables.ErrorTable;
 import model.tables.InstructionTable;
-import model.tables.LiteralTable;
+import model.tables.LabelIndex;
 import model.tables.RegisterTable;
-import model.tables.SymbolTable;
+import model.utility.ExpressionEvaluator;
 import model.utility.Utility;
 
 public class Controller {
 
 	private CommandInfo CI;
+	private AssemblySession session;
 
-	private static ArrayList<Line> lineList;
-	private static ArrayList<Integer> recordLengths = new ArrayList<>();
-	private static ArrayList<Integer> reserves = new ArrayList<>();
-	private static ArrayList<String> literals = new ArrayList<>();
+	private LineStore lineList;
 
 	private String path;
-	private String base;
-	private String displacement;
-	private String BASE_ERROR = "Base Error";
+	private String listFilePath = "res/LIST/listFile.txt";
+	private String symTablePath = "res/LIST/symTable.txt";
+	private String objFilePath = "res/LIST/objFile.o";
+	private Charset outputCharset = Charset.defaultCharset();
+	private String source = "";
+	// address loaded in the base register by the last BASE, NO_BASE after NOBASE
+	private int baseRegister = NO_BASE;
+	private static final int NO_BASE = -1;
+	private int displacement;
+	// returned by getBPE when the operand is out of reach
+	private static final int BASE_ERROR = -1;
 	private boolean noErrorsInPassOne = false;
 	private boolean noErrorsInPassTwo = false;
-	private ArrayList<String> objCodeForInst = new ArrayList<>();
+	private ArrayList<EncodedLine> encodedLines = new ArrayList<>();
+	// address of each symbol by label id when the lines were encoded
+	private int[] encodedSymbols = new int[0];
+	private int textRecordLength = TextRecordWriter.DEFAULT_RECORD_LENGTH;
+	// set when the passes of the session ran to the end
+	private boolean complete = false;
+	// lines of the source of the session, null if it cannot be reassembled
+	private SourceLines assembledSource;
+	private boolean assembledRestricted;
+	// a reassembly leaves the listing, symbol table and object file behind
+	private boolean outputsPending = false;
+	// told how much of the running assembly is done, from 0 to 1
+	private DoubleConsumer progressListener = done -> {
+	};
 
 	public boolean isNoErrors() {
 		return noErrorsInPassOne && noErrorsInPassTwo;
 	}
 
-	public static void clear() {
-		lineList.clear();
-		recordLengths.clear();
-		reserves.clear();
-		literals.clear();
+	/**
+	 * @return true if the passes of the last assembly ran to the end, its files
+	 *         are then all written.
+	 */
+	public boolean isComplete() {
+		return complete;
 	}
 
 	public void setNoErrors(boolean noErrors) {
 		this.noErrorsInPassOne = noErrors;
 	}
 
+	public void setOutputPaths(String listFilePath, String symTablePath, String objFilePath) {
+		this.listFilePath = listFilePath;
+		this.symTablePath = symTablePath;
+		this.objFilePath = objFilePath;
+	}
+
+	/**
+	 * @param outputCharset
+	 *            encodes the listing and the symbol table, the one the source was
+	 *            decoded with keeps the characters of its comments as they were.
+	 */
+	public void setOutputCharset(Charset outputCharset) {
+		this.outputCharset = outputCharset;
+	}
+
+	/**
+	 * @param textRecordLength
+	 *            maximum number of bytes in one T record of the object file.
+	 */
+	public void setTextRecordLength(int textRecordLength) {
+		this.textRecordLength = textRecordLength;
+	}
+
+	/**
+	 * @param progressListener
+	 *            called on the assembling thread after each phase, with the part
+	 *            of the work done from 0 to 1.
+	 */
+	public void setProgressListener(DoubleConsumer progressListener) {
+		this.progressListener = progressListener;
+	}
+
+	/**
+	 * reports a phase of the assembly as done. An assembly running on a thread
+	 * that was interrupted stops here, the next one starts from scratch.
+	 * 
+	 * @throws CancellationException
+	 *             if the thread was interrupted.
+	 */
+	private void phaseDone(double done) {
+		if (Thread.currentThread().isInterrupted())
+			throw new CancellationException("assembly cancelled");
+		progressListener.accept(done);
+	}
+
+	/**
+	 * @return the text of the last program assembled from a String.
+	 */
+	public String getSource() {
+		return source;
+	}
+
 	private void loadInstructionTable() {
 
 		InstructionTable.loadInstructionTable();
@@ -79,107 +171,122 @@ public class Controller {
 		loadRegisterTable();
 	}
 
+	private BufferedWriter listingWriter(boolean append) throws IOException {
+		return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(listFilePath, append), outputCharset));
+	}
+
+	/**
+	 * writes the source part of the listing, pass two appends to it.
+	 */
 	private void prepareListFile() {
 
-		final String lineSeparator = "-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-";
-		final String startPassOne = "\n-_-_-_-_-_-_-_-_-_- S   T   A   R   T      O   F      P   A   S   S   1 -_-_-_-_-_-_-_-_-_-_-";
-		final String TABLE_FORM = "LINES" + Utility.getSpaces(7) + "ADDRESS" + Utility.getSpaces(5) + "LABEL"
-				+ Utility.getSpaces(7) + "MNEMONIC" + Utility.getSpaces(4) + "ADDR_MODE" + Utility.getSpaces(3)
-				+ "OPERAND1" + Utility.getSpaces(4) + "OPERAND2" + Utility.getSpaces(4) + "COMMENTS\n";
-		String toBePrintedInListFile = lineSeparator;
-		toBePrintedInListFile += startPassOne + "\n\n";
-		toBePrintedInListFile += TABLE_FORM;
-
-		int len = CI.getLinesList().size();
-		for (int i = 0; i < len; i++) {
-			String lineCount = String.valueOf(i);
-			// noinspection StringConcatenationInLoop
-			toBePrintedInListFile += lineCount + Utility.getSpaces(12 - lineCount.length())
-					+ CI.getLinesList().get(i).toString() + "\n";
+		try (ListingWriter listing = new ListingWriter(listingWriter(false))) {
+			listing.writePassOneHeader();
+			int len = lineList.size();
+			for (int i = 0; i < len; i++)
+				listing.writeSourceRow(i, lineList.get(i));
+		} catch (IOException e) {
+			System.err.println(e);
 		}
-
-		Utility.writeFile(toBePrintedInListFile, "res/LIST/listFile.txt");
 	}
 
 	private void fillSymbolTable() {
 		Symbol symbol;
-		String value;
+		int value;
 		for (Line line : lineList) {
-			if (!line.getLabel().equals("") && !line.getLabel().equals("(~)")) {
-				if (line.getMnemonic().equalsIgnoreCase("EQU")) {
-					if (Utility.isLabel(line.getFirstOperand())) {
+			if (line.getLabelId() != LabelIndex.NO_LABEL) {
+				if (line.isDirective(DirectiveType.EQU)) {
+					if (Utility.isLabel(line.getFirstOperand(), session)) {
 						// if operand is label => get its address
-						value = SymbolTable.symbolTable.get(line.getFirstOperand()).getAddress();
+						value = session.getSymbolTable().get(line.getFirstOperand()).getAddress();
 					} else {
 						// if operand is expression => evaluate it
-						if (Utility.isExpression(line.getFirstOperand())) {
+						if (Utility.isExpression(line.getFirstOperand(), session)) {
 							evaluateLineExpressions(line);
 						}
 						// reaching this line means operand is not a label
-						// if it is an expression then it is evaluated a replaced by the final result
+						// if it is an expression then its value is kept on the line
 						// if not => it is a numeric value already
-						// in both cases, the needed value is the operand itself
-						value = line.getFirstOperand();
+						value = line.isEvaluated() ? line.getValue() : equValue(line);
 					}
 					symbol = new Symbol(line.getLabel(), value);
-					SymbolTable.symbolTable.put(symbol.getSymbol(), symbol);
+					session.getSymbolTable().put(line.getLabelId(), symbol);
 				} else {
 					symbol = new Symbol(line.getLabel(), line.getLocation());
-					SymbolTable.symbolTable.put(symbol.getSymbol(), symbol);
+					session.getSymbolTable().put(line.getLabelId(), symbol);
 				}
 			}
 		}
-		Utility.writeFile(SymbolTable.getString(), "res/LIST/symTable.txt");
 	}
 
-	public static void fillLiteralsTable(ArrayList<Line> lineList) {
+	/**
+	 * @return the address an EQU with a numeric operand gives its label, the
+	 *         operand is read as hex like every address.
+	 */
+	private int equValue(Line line) {
+		String operand = line.getFirstOperand();
+		if (!Utility.isHex(operand)) {
+			line.setError(ErrorTable.WRONG_OPERAND_TYPE);
+			return 0;
+		}
+		return Utility.hexToDecimal(operand);
+	}
+
+	/**
+	 * @param end
+	 *            the row after the last one whose literals go in the pool.
+	 * @param skipErrors
+	 *            false while the source is read, before any line is verified.
+	 */
+	public static void fillLiteralsTable(LineStore lineList, int end, boolean skipErrors, AssemblySession session) {
 		Literal literal;
 		// In case LTORG was encountered in the code, all literals before it are
 		// evaluated and added.
 		// Then, "literalsStartIndex" is set to the index of the first line after LTORG
 		// So that, when this function s called at the end of the program, it doesn't
 		// add already added literals
-		int index = ProgramCounter.getInstance().getLiteralsStartIndex();
-		int startingAddress = ProgramCounter.getInstance().getProgramCounter();
-		int i = 0;
-		for (Line line : lineList) {
-			if (line.getError().equals("")) {
-				// to skip iterations before the last encountered LTORG in the program
-				if (i <= index) {
-					i++;
-					continue;
-				}
+		int index = session.getProgramCounter().getLiteralsStartIndex();
+		int startingAddress = session.getProgramCounter().getProgramCounter();
+		// to skip lines before the last encountered LTORG in the program
+		for (int i = index; i < end; i++) {
+			Line line = lineList.get(i);
+			if (!skipErrors || !line.hasError()) {
 				// to add literals after the last LTORG to the pole (i.e. after END directive)
 				if (!line.getFirstOperand().equals("")) {
-					if (line.getFirstOperand().charAt(0) == '=') {
-						literal = new Literal(line.getFirstOperand(), Utility.convertToHexa(startingAddress));
+					if (line.getFirstOperand().charAt(0) == '='
+							&& session.getLiteralTable().get(line.getFirstOperand()) == null) {
+						literal = new Literal(line.getFirstOperand(), startingAddress);
 						startingAddress += literal.calculateLength();
-						LiteralTable.literalTable.put(literal.getOperand(), literal);
+						session.getLiteralTable().put(literal.getOperand(), literal);
 					}
 				}
-				index++;
 			}
 		}
-		ProgramCounter.getInstance().setLiteralsStartIndex(index);
-		ProgramCounter.getInstance().setLocationCounter(startingAddress);
+		session.getProgramCounter().setLiteralsStartIndex(end);
+		session.getProgramCounter().setLocationCounter(startingAddress);
 	}
 
-	private void processArithmeticExpressions() {
-		for (Line line : lineList) {
-			if (line.getError().equalsIgnoreCase("")) {
-				if (!line.getMnemonic().equals("NOP")) {
+	/**
+	 * evaluates the expressions in the operands of the rows from..to.
+	 */
+	private void processArithmeticExpressions(int from, int to) {
+		for (int row = from; row < to; row++) {
+			Line line = lineList.get(row);
+			if (!line.hasError()) {
+				if (!line.isNop()) {
 					Format format;
-					if (Utility.isInstruction(line.getMnemonic())) {
-						format = InstructionTable.instructionTable.get(line.getMnemonic()).getFormat();
+					if (line.getInstruction() != null) {
+						format = line.getInstruction().getFormat();
 					} else { // Directive
-						format = DirectiveTable.directiveTable.get(line.getMnemonic()).getFormat();
+						format = line.getDirective().getFormat();
 					}
 					// Only if formats 3 & 4
-					if (format == Format.THREE || format == Format.FOUR || line.getMnemonic().equals("ORG")
-							|| line.getMnemonic().equals("EQU") || line.getMnemonic().equals("LTORG")) {
+					if (format == Format.THREE || format == Format.FOUR || line.isDirective(DirectiveType.ORG)
+							|| line.isDirective(DirectiveType.EQU) || line.isDirective(DirectiveType.LTORG)) {
 						// ONLY if addressing mode is direct with/without indexing
 						if (!line.getAddressingMode().equals("#") && !line.getAddressingMode().equals("@")) {
-							if (Utility.isExpression(line.getFirstOperand()))
+							// an EQU is evaluated as its symbol is defined
+							if (!line.isEvaluated() && Utility.isExpression(line.getFirstOperand(), session))
 								evaluateLineExpressions(line);
 						}
 					}
@@ -191,63 +298,282 @@ public class Controller {
 	private void evaluateLineExpressions(Line line) {
 		ArrayList<String> expressionList = Utility.splitExpression(line.getFirstOperand());
 		// Verify labels in the expression
-		if (Utility.verifyExpression(expressionList)) {
+		if (Utility.verifyExpression(expressionList, session)) {
 			// Replace labels by the numeric value of their addresses
-			Utility.evaluateLabels(expressionList);
+			Utility.evaluateLabels(expressionList, session);
 			// Check syntax of arithmetic expression
 			if (Utility.validateNumericExpression(expressionList)) {
 				// Evaluate the expression
 				String expression = Utility.getNumericExpression(expressionList);
-				String operand = Utility.evaluateExpression(expression);
-				if (operand.equals("error"))
-					line.setError(String.valueOf(ErrorTable.WRONG_OPERAND_TYPE));
-				System.out.println(
-						"Done evaluating! " + line.getFirstOperand() + " = " + operand + "\t\t\t" + expression);
-				line.setFirstOperand(operand);
+				int value;
+				try {
+					value = ExpressionEvaluator.evaluate(expression);
+				} catch (IllegalArgumentException | ArithmeticException e) {
+					System.out.println("Expression evaluation failed!!!");
+					line.setError(ErrorTable.WRONG_OPERAND_TYPE);
+					return;
+				}
+				System.out.println("Done evaluating! " + line.getFirstOperand() + " = "
+						+ Utility.convertToHexa(value & 0xFFFFFF) + "\t\t\t" + expression);
+				line.setValue(value);
 			} else {
 				// Wrong Arithmetic expression format
-				line.setError(ErrorTable.errorList[ErrorTable.WRONG_OPERAND_TYPE]);
+				line.setError(ErrorTable.WRONG_OPERAND_TYPE);
 			}
 		} else {
-			line.setError(ErrorTable.errorList[ErrorTable.WRONG_OPERAND_TYPE]);
+			line.setError(ErrorTable.WRONG_OPERAND_TYPE);
 		}
 	}
 
-	private void passOne(String program, boolean restricted) {
+	void passOne(Reader program, boolean restricted) throws IOException {
 
-		Utility.writeFile(program, "res/functionality/ASSEMBLING");
-		CI = SourceReader.getInstance().processFile(SourceReader.getInstance().readFile("res/functionality/ASSEMBLING"),
-				restricted);
+		CI = SourceReader.getInstance().processFile(program, restricted, session);
+		phaseDone(0.4);
 
-		boolean firstPassDone = CI.addToLineList();
 		lineList = CI.getLinesList();
-		if (firstPassDone) {
-			prepareListFile();
+		prepareListFile();
+		fillSymbolTable();
+		Utility.writeFile(session.getSymbolTable().getString(), symTablePath, outputCharset);
+		processArithmeticExpressions(0, lineList.size());
+		fillLiteralsTable(lineList, lineList.size(), true, session);
+		noErrorsInPassOne = CI.checkForErrors();
+		phaseDone(0.6);
+	}
+
+	/**
+	 * checks a program without assembling it: only the verification of pass one
+	 * and the resolution of symbols and expressions are run, no file is written.
+	 * 
+	 * @param program
+	 *            the source code.
+	 * @param restricted
+	 *            restricted columns or free format source.
+	 *
+	 * @return an entry for every line with an error, empty if there is none.
+	 */
+	public ArrayList<Diagnostic> check(Reader program, boolean restricted) throws IOException {
+
+		newSession();
+		try {
+			CI = SourceReader.getInstance().processFile(program, restricted, session);
+			phaseDone(0.5);
+			lineList = CI.getLinesList();
+			fillSymbolTable();
+			processArithmeticExpressions(0, lineList.size());
+			noErrorsInPassOne = CI.checkForErrors();
+			noErrorsInPassTwo = false;
+			phaseDone(1);
+		} catch (CancellationException e) {
+			newSession();
+			throw e;
+		}
+		complete = true;
+		return CI.getDiagnostics();
+	}
+
+	public ArrayList<Diagnostic> check(String program, boolean restricted) throws IOException {
+		source = program;
+		ArrayList<Diagnostic> diagnostics = check(new StringReader(program), restricted);
+		keepLines(program, restricted);
+		return diagnostics;
+	}
+
+	/**
+	 * assembles an edited program again from the last assembly of it. Only the
+	 * lines that changed are read and verified again and the locations are
+	 * counted again. Symbols and expressions are only worked out again if a line
+	 * moved, and pass two only encodes the lines whose code may have changed. The
+	 * listing, symbol table and object file are written when they are asked for.
+	 * 
+	 * An edit that adds, removes or renames a label, touches a START, END, EQU,
+	 * BASE or NOBASE statement or reaches the last line is assembled from
+	 * scratch, as is a program that was not assembled from a String before.
+	 * 
+	 * @throws CancellationException
+	 *             if the thread was interrupted, see phaseDone.
+	 * 
+	 * @param program
+	 *            the whole source code after the edit.
+	 * @param restricted
+	 *            restricted columns or free format source.
+	 */
+	public void reassemble(String program, boolean restricted) {
+		boolean reassembled;
+		SourceLines lines = null;
+		try {
+			if (assembledSource != null && restricted == assembledRestricted) {
+				if (program.equals(assembledSource.getText()))
+					return;
+				lines = assembledSource.edit(program);
+			}
+			reassembled = lines != null && reassembleEdit(lines);
+		} catch (CancellationException e) {
+			// the rows may be half edited
+			newSession();
+			throw e;
+		} catch (Exception e) {
+			reassembled = false;
+		}
+		if (!reassembled) {
+			assemble(program, restricted);
+			return;
+		}
+		source = program;
+		assembledSource = lines;
+		outputsPending = true;
+		progressListener.accept(1);
+	}
+
+	/**
+	 * @return false if the edit has to be assembled from scratch, the session is
+	 *         then left as it is.
+	 */
+	private boolean reassembleEdit(SourceLines lines) {
+		int from = lineList.rowOfSourceLine(lines.getEditStart() + 1);
+		int to = lineList.rowOfSourceLine(lines.getReplacedEnd() + 1);
+		// a missing END is reported on the last line
+		if (to >= lineList.size())
+			return false;
+		LineStore edited = SourceReader.getInstance()
+				.processLines(lines.getLines(lines.getEditStart(), lines.getEditEnd()), lines.getEditStart() + 1,
+						assembledRestricted, new AssemblySession())
+				.getLinesList();
+		if (!isLocalEdit(from, to, edited))
+			return false;
+
+		int count = edited.size();
+		lineList.replace(from, to, edited, lines.getEditEnd() - lines.getReplacedEnd());
+		if (!encodedLines.isEmpty()) {
+			encodedLines.subList(from, to).clear();
+			encodedLines.addAll(from, Collections.nCopies(count, (EncodedLine) null));
+		}
+		for (int row = from; row < from + count; row++) {
+			Line line = lineList.get(row);
+			session.getErrorChecker().verifyEditedLine(line);
+			// a label that is no longer defined changes the lines that use it
+			if (line.hasLabel() && line.hasError())
+				return false;
+		}
+		lineList.markVerified(from, from + count);
+
+		if (relocate(from, from + count)) {
+			lineList.restoreVerifiedErrors();
+			lineList.clearValues();
+			session.getSymbolTable().clear();
 			fillSymbolTable();
-			processArithmeticExpressions();
-			fillLiteralsTable(lineList);
+			processArithmeticExpressions(0, lineList.size());
+		} else {
+			// every symbol kept its address, so did every expression of the other lines
+			if (noErrorsInPassOne)
+				lineList.restoreVerifiedErrors(); // only pass two found errors
+			processArithmeticExpressions(from, from + count);
 		}
+		fillLiteralsTable(lineList, lineList.size(), true, session);
 		noErrorsInPassOne = CI.checkForErrors();
+		phaseDone(0.6);
+		noErrorsInPassTwo = noErrorsInPassOne && encodeLines();
+		return true;
+	}
+
+	/**
+	 * @return true if the rows from..to and the rows replacing them define the
+	 *         same labels, without an error, and change no statement that
+	 *         applies to the whole program.
+	 */
+	private boolean isLocalEdit(int from, int to, LineStore edited) {
+		ArrayList<String> labels = new ArrayList<>();
+		for (int row = from; row < to; row++) {
+			Line line = lineList.get(row);
+			if (!isLocalStatement(line) || line.hasLabel() && line.hasError())
+				return false;
+			if (line.hasLabel())
+				labels.add(line.getLabel());
+		}
+		int next = 0;
+		for (Line line : edited) {
+			if (!isLocalStatement(line))
+				return false;
+			if (line.hasLabel() && (next == labels.size() || !labels.get(next++).equals(line.getLabel())))
+				return false;
+		}
+		return next == labels.size();
 	}
 
-	private String getStartOfProgram() {
+	private static boolean isLocalStatement(Line line) {
+		return !line.isDirective(DirectiveType.START) && !line.isDirective(DirectiveType.END)
+				&& !line.isDirective(DirectiveType.EQU) && !line.isDirective(DirectiveType.BASE)
+				&& !line.isDirective(DirectiveType.NOBASE);
+	}
 
-		String startOfProgram = "000000";
+	/**
+	 * gives every line its location again, in the same way as they were given
+	 * while the source was read.
+	 * 
+	 * @param from
+	 *            first of the rows an edit put in.
+	 * @param to
+	 *            row after the last of them.
+	 *
+	 * @return true if another row moved or a label of these rows is not at the
+	 *         address of its symbol, so symbols may have changed.
+	 */
+	private boolean relocate(int from, int to) {
+		ProgramCounter pc = session.getProgramCounter();
+		pc.resetAddresses();
+		session.getLiteralTable().clear();
+		boolean moved = false;
 		for (Line line : lineList) {
-			if (line.getMnemonic().equalsIgnoreCase("START")) {
-				startOfProgram = "00" + line.getLocation();
-				break;
+			int location = line.getLocation();
+			pc.updateCounters(line, lineList);
+			if (line.getIndex() < from || line.getIndex() >= to) {
+				moved |= line.getLocation() != location;
+			} else if (line.hasLabel()) {
+				Symbol symbol = session.getSymbolTable().get(line.getLabelId());
+				moved |= symbol == null || symbol.getAddress() != line.getLocation();
 			}
 		}
-		return startOfProgram;
+		return moved;
+	}
+
+	private void keepLines(String program, boolean restricted) {
+		if (!complete)
+			return;
+		assembledSource = new SourceLines(program);
+		assembledRestricted = restricted;
+	}
+
+	/**
+	 * writes the listing, symbol table and object file of the last reassembly,
+	 * if they were not written since.
+	 */
+	public void writeOutputs() {
+		if (!outputsPending)
+			return;
+		outputsPending = false;
+		prepareListFile();
+		Utility.writeFile(session.getSymbolTable().getString(), symTablePath, outputCharset);
+		if (!noErrorsInPassOne)
+			return;
+		reportEndPassTwo(noErrorsInPassTwo);
+		if (noErrorsInPassTwo)
+			Utility.writeFile(getObjectCode(), objFilePath);
+	}
+
+	private int getStartOfProgram() {
+
+		for (Line line : lineList) {
+			if (line.isDirective(DirectiveType.START))
+				return line.getLocation();
+		}
+		return 0;
 	}
 
 	private String getSizeOfProgram() {
 		int sum = 0;
-		for (int n : recordLengths) {
+		for (int n : session.getRecordLengths()) {
 			sum += n;
 		}
-		for (int n : reserves) {
+		for (int n : session.getReserves()) {
 			sum += n;
 		}
 		String res = Utility.convertToHexa(sum - 1);
@@ -258,7 +584,7 @@ public class Controller {
 
 		String name = "";
 		for (Line line : lineList) {
-			if (line.getMnemonic().equalsIgnoreCase("START")) {
+			if (line.isDirective(DirectiveType.START)) {
 				name = line.getLabel();
 				break;
 			}
@@ -273,124 +599,116 @@ public class Controller {
 
 	private String getHeaderRecord() {
 
-		String startOfProgram = getStartOfProgram();
+		String startOfProgram = "00" + Utility.convertToHexa(getStartOfProgram());
 		String sizeOfProgram = getSizeOfProgram();
 		String programName = getProgramName();
 		return "H^" + programName + "^" + startOfProgram + "^" + sizeOfProgram; // Return header Record
 	}
 
-	private String addToTextRecord(String opcode, String flags, String disp, Format format) {
-
-		String record;
-		record = Utility.hexToBin(opcode).substring(12, 18); // take 6 bits only
-		record += Utility.hexToBin(flags).substring(14);
-		record += format == Format.THREE ? Utility.hexToBin(disp).substring(8) : Utility.hexToBin(disp);
-		record = Utility.binToHex(record, format);
-		return record;
-	}
-
-	private String getNIX(Line line) {
+	private int getNIX(Line line) {
 
-		String nix;
+		int nix;
 		switch (line.getAddressingMode()) {
 		// set n, i and x flags
 		case "#":
 			// case immediate
 			// nix = 010
-			nix = "010";
+			nix = InstructionEncoder.I;
 			break;
 		case "@":
 			// case indirect
 			// nix = 100
-			nix = "100";
+			nix = InstructionEncoder.N;
 			break;
 		default:
 			// case direct
 			// nix = indexing? 111 : 110;
 			if (!line.getSecondOperand().equals("")) {
 				// indexed
-				nix = "111";
+				nix = InstructionEncoder.N | InstructionEncoder.I | InstructionEncoder.X;
 			} else {
 				// non indexed
-				nix = "110";
+				nix = InstructionEncoder.N | InstructionEncoder.I;
 			}
 			break;
 		}
 		return nix;
 	}
 
-	private String getBPE(Line line, Format format) {
+	/**
+	 * sets the displacement, or the address for format 4, of the instruction.
+	 * 
+	 * @return the b, p and e flags, BASE_ERROR if the operand is out of reach.
+	 */
+	private int getBPE(Line line, Format format) {
 
-		// TODO: set bpe
-		// TODO: firstOperand = displacement and set the b, p and e flags, e = 0 for
-		// Format 3 and e = 1 for Format 4
-		String bpe, bp, e;
+		int bp, e;
 		String firstOperand = line.getFirstOperand().toUpperCase();
 		int step = format == Format.THREE ? 3 : 4;
-		int pc = Utility.hexToDecimal(line.getLocation()) + step;
+		int pc = line.getLocation() + step;
 		int loc, disp;
-		Symbol symbol = SymbolTable.symbolTable.get(firstOperand);
-		Literal literal = LiteralTable.literalTable.get(firstOperand);
-		if (symbol != null || literal != null) {
-			loc = literal == null ? Utility.hexToDecimal(symbol.getAddress())
-					: Utility.hexToDecimal(literal.getAddress());
+		Symbol symbol = session.getSymbolTable().get(firstOperand);
+		Literal literal = session.getLiteralTable().get(firstOperand);
+		// an evaluated expression is an address, reached as a symbol is
+		if (symbol != null || literal != null || line.isEvaluated()) {
+			if (line.isEvaluated())
+				loc = line.getValue();
+			else
+				loc = literal == null ? symbol.getAddress() : literal.getAddress();
 			disp = loc - pc;
 			if (disp >= -2048 && disp < 2048) {
 				// bpe = 010
-				bp = "01";
+				bp = InstructionEncoder.P;
 			} else { // try base relative
-				if (checkBase()) { // check if base register is available
-					int base = getBase();
-					disp = loc - base;
+				if (baseRegister != NO_BASE) { // check if base register is available
+					disp = loc - baseRegister;
 					if (disp >= 0 && disp <= 4 * 1024 - 1) {
 						// bpe = 100
-						bp = "10";
+						bp = InstructionEncoder.B;
 					} else {
 						// error
-						line.setError(ErrorTable.errorList[ErrorTable.DISPLACEMENT_OVERFLOW]);
+						line.setError(ErrorTable.DISPLACEMENT_OVERFLOW);
 						return BASE_ERROR;
 					}
 				} else {
 					// error
-					line.setError(ErrorTable.errorList[ErrorTable.DISPLACEMENT_OVERFLOW]);
+					line.setError(ErrorTable.DISPLACEMENT_OVERFLOW);
 					return BASE_ERROR;
 				}
 			}
 		} else { // copied and pasted code
-			bp = "00";
-			// immediate
-			if (firstOperand.charAt(0) == '#') {
+			bp = 0;
+			if (firstOperand.equals("")) {
+				// no operand (RSUB)
+				disp = 0;
+			} else if (firstOperand.charAt(0) == '#') { // immediate
 				disp = Utility.hexToDecimal(firstOperand.substring(1));
 			} else { // address
 				disp = Utility.hexToDecimal(firstOperand);
 			}
+			// a number goes in the field as it is, it must fit unsigned
+			int max = format == Format.THREE ? 0xFFF : 0xFFFFF;
+			if (disp < 0 || disp > max) {
+				line.setError(ErrorTable.DISPLACEMENT_OVERFLOW);
+				return BASE_ERROR;
+			}
 		}
-		displacement = format == Format.THREE ? String.format("%1$04X", disp) : String.format("%1$05X", disp);
-		e = format == Format.THREE ? "0" : "1";
-		bpe = bp + e;
-		return bpe;
-	}
-
-	private void setBase(String base) {
-
-		this.base = SymbolTable.symbolTable.get(base).getAddress();
-	}
-
-	private int getBase() {
-
-		return Utility.hexToDecimal(base);
+		displacement = disp;
+		e = format == Format.THREE ? 0 : InstructionEncoder.E;
+		return bp | e;
 	}
 
-	private boolean checkBase() {
-
-		for (Line line : lineList) {
-			if (line.getMnemonic().equalsIgnoreCase("BASE")) {
-				setBase(line.getFirstOperand());
-				return true;
-			} else if (line.getMnemonic().equalsIgnoreCase("NOBASE"))
-				return false;
+	/**
+	 * follows the BASE and NOBASE statements, to be called on every line in
+	 * source order before it is encoded.
+	 */
+	private void trackBase(Line line) {
+		if (line.isDirective(DirectiveType.BASE)) {
+			Symbol symbol = session.getSymbolTable().get(line.getFirstOperand());
+			baseRegister = symbol != null ? symbol.getAddress() : Utility.hexToDecimal(line.getFirstOperand());
+		} else if (line.isDirective(DirectiveType.NOBASE)) {
+			baseRegister = NO_BASE;
 		}
-		return false;
 	}
 
 	private String extractOperand(String operand) {
@@ -417,397 +735,372 @@ public class Controller {
 		String temp = extractLiteral(literal.getOperand());
 		switch (literal.getType()) {
 		case "W":
-			recordLengths.add(3);
 			return Utility.getZeros(6 - convertToAscii(temp).length()) + convertToAscii(temp);
 		case "C":
-			recordLengths.add(temp.length());
 			return convertToAscii(temp);
 		case "X":
-			recordLengths.add((int)Math.ceil(temp.length() / 2));
-			return temp;
+			return temp.length() % 2 == 0 ? temp : "0" + temp;
 		default:
 			return null; 
 		}
 	}
 
-	private String ltorgOccured() {
-		String record = "";
-		while (!literals.isEmpty()) {
-			record += getLiteralHexValue(LiteralTable.literalTable.get(literals.get(0)));
-			literals.remove(0);
+	private void ltorgOccured(EncodedLine encoded) {
+		ArrayList<String> literals = session.getLiterals();
+		for (String literal : literals) {
+			String code = getLiteralHexValue(session.getLiteralTable().get(literal));
+			addCode(encoded, code, code.length() / 2);
 		}
-		return record;
+		literals.clear();
 	}
 
-	private String formatTextRecord(String textRecord) {
-		ArrayList<String> lengths = new ArrayList<>();
-		String start = getStartOfProgram();
-		String result = "T^" + start + "^^";
-		char[] temp = textRecord.toCharArray();
-		int count = 0;
-		int sum = 0;
-		int index = 0;
-		int tempSize = 0;
-		for (int n : recordLengths) {
-			sum += n;
-			if (sum <= 30) {
-				int i;
-				for (i = index; i < index + n * 2; i++) {
-					// noinspection StringConcatenationInLoop
-					result += temp[i];
-					count++;
-				}
-				objCodeForInst.add(result.substring(result.length() - 6));
-				tempSize = sum;
-				index = i;
-			} else {
-				// noinspection StringConcatenationInLoop
-				result += "\nT^";
-				start = String.format("%1$06X", Utility.hexToDecimal(start) + sum - n);
-				lengths.add(String.format("%1$02X", sum - n));
-				result += start;
-				result += "^^";
-				tempSize = sum - n;
-				sum = 0;
+	private void addInstruction(EncodedLine encoded, int code, int length) {
+		encoded.setInstruction(code, length);
+		session.getRecordLengths().add(length);
+	}
+
+	private void addCode(EncodedLine encoded, String code, int length) {
+		encoded.addCode(code, length);
+		session.getRecordLengths().add(length);
+	}
+
+	/**
+	 * encodes every line once, in source order, for both the object file and the
+	 * listing. After a reassembly the code of a line is kept when nothing it
+	 * depends on changed.
+	 * 
+	 * @return false if an instruction could not reach its operand.
+	 */
+	private boolean encodeLines() {
+
+		ArrayList<EncodedLine> previous = encodedLines;
+		encodedLines = new ArrayList<>(lineList.size());
+		session.getRecordLengths().clear();
+		session.getReserves().clear();
+		session.getLiterals().clear();
+		boolean moved = hasMoved(previous);
+		boolean noDisplacementError = true;
+		baseRegister = NO_BASE;
+		int last = lineList.size() - 1;
+		for (Line line : lineList) {
+			trackBase(line);
+			EncodedLine encoded = previous.isEmpty() ? null : previous.get(line.getIndex());
+			// the last line also gets the literals no LTORG placed
+			if (encoded == null || line.getIndex() == last || !canReuse(line, encoded, moved)) {
+				encoded = encodeLine(line);
+			} else if (encoded.getLength() > 0) {
+				session.getRecordLengths().add(encoded.getLength());
 			}
+			encoded.setLocation(line.getLocation());
+			if (encoded.isDisplacementError())
+				noDisplacementError = false;
+			encodedLines.add(encoded);
 		}
-		lengths.add(String.format("%1$02X", tempSize));
-		int diff = temp.length - count;
-		if (count < temp.length) {
-			while (count < temp.length) {
-				result += temp[count++];
-			}
-			String lastSize = Integer.toString(Utility.hexToDecimal(lengths.get(lengths.size() - 1)) + diff / 2);
-			if (Integer.parseInt(lastSize) > 30) { lastSize = Integer.toString(Integer.parseInt(lastSize) - 28); }
-			lastSize = String.format("%1$02X", Integer.parseInt(lastSize));
-			lengths.set(lengths.size() - 1, lastSize);
-		}
-		int size = result.length();
-		index = 0;
-		for (int i = 0; i < size; i++) {
-			if (result.charAt(i) == 'T') {
-				result = result.substring(0, i + 9) + lengths.get(index++) + result.substring(i + 9);
-			}
+		// literals not placed by an LTORG follow the last line
+		if (!encodedLines.isEmpty())
+			ltorgOccured(encodedLines.get(encodedLines.size() - 1));
+		encodedSymbols = symbolAddresses();
+		return noDisplacementError;
+	}
+
+	/**
+	 * @return true if a line was encoded at a location it is no longer at, or a
+	 *         symbol had another address.
+	 */
+	private boolean hasMoved(ArrayList<EncodedLine> previous) {
+		int size = previous.size();
+		for (int row = 0; row < size; row++) {
+			EncodedLine encoded = previous.get(row);
+			if (encoded != null && encoded.getLocation() != lineList.get(row).getLocation())
+				return true;
 		}
-		return result;
+		return !Arrays.equals(encodedSymbols, symbolAddresses());
 	}
 
-	private String getTextRecord() {
+	/**
+	 * @return the address of each symbol by label id, NO_LOCATION for a label
+	 *         without one.
+	 */
+	private int[] symbolAddresses() {
+		int[] addresses = new int[session.getLabelIndex().size()];
+		for (int id = 0; id < addresses.length; id++) {
+			Symbol symbol = session.getSymbolTable().get(id);
+			addresses[id] = symbol == null ? ProgramCounter.NO_LOCATION : symbol.getAddress();
+		}
+		return addresses;
+	}
 
-		String textRecord = "";
-		String nix, bpe;
-		String flagsByte;
+	/**
+	 * @param moved
+	 *            some line is not where it was encoded, so symbols may have moved.
+	 *
+	 * @return true if the line would be encoded as it was before: its code only
+	 *         depends on its own fields, or on a distance to its operand that did
+	 *         not change.
+	 */
+	private boolean canReuse(Line line, EncodedLine encoded, boolean moved) {
+		// literals and reserves are collected as the lines are encoded
+		if (encoded.isDisplacementError() || line.isEvaluated() || line.getFirstOperand().startsWith("="))
+			return false;
+		Instruction instruction = line.getInstruction();
+		if (instruction == null)
+			return !line.isDirective(DirectiveType.RESW) && !line.isDirective(DirectiveType.RESB)
+					&& !line.isDirective(DirectiveType.LTORG);
+		if (instruction.getFormat() != Format.THREE && instruction.getFormat() != Format.FOUR || !moved)
+			return true;
+		Symbol symbol = session.getSymbolTable().get(line.getFirstOperand().toUpperCase());
+		if (symbol == null)
+			return true;
+		// relative to the program counter, the same distance gives the same code
+		return (encoded.getFlags() & InstructionEncoder.P) != 0
+				&& symbol.getAddress() - (line.getLocation() + encoded.getLength()) == encoded.getDisplacement();
+	}
+
+	private EncodedLine encodeLine(Line line) {
+
+		EncodedLine encoded = new EncodedLine();
+		int nix, bpe;
 		String textRecordTemp;
 		String firstOperand;
-		String secondOperand;
-		String mnemonic;
-		Instruction currentInstruction;
-		for (Line line : lineList) {
-			mnemonic = line.getMnemonic();
-			currentInstruction = InstructionTable.instructionTable.get(mnemonic);
-			if (currentInstruction != null) {
-				textRecordTemp = String.format("%1$02X", currentInstruction.getOpcode());
-				firstOperand = line.getFirstOperand();
-				if (LiteralTable.literalTable.get(firstOperand) != null) {
-					literals.add(firstOperand);
-				}
-				switch (currentInstruction.getFormat()) {
-				case ONE:
-					// noinspection StringConcatenationInLoop
-					textRecord += textRecordTemp;
-					recordLengths.add(1);
-					break;
-				case TWO:
-					firstOperand = Integer.toString(RegisterTable.registerTable.get(line.getFirstOperand()));
-					if (currentInstruction.hasSecondOperand())
-						secondOperand = Integer.toString(RegisterTable.registerTable.get(line.getSecondOperand()));
-					else
-						secondOperand = "0";
-					// noinspection StringConcatenationInLoop
-					textRecord += textRecordTemp + firstOperand + secondOperand;
-					recordLengths.add(2);
-					break;
-				case THREE:
-					nix = getNIX(line);
-					bpe = getBPE(line, Format.THREE);
-					if (bpe.equals(BASE_ERROR)) {
-						return BASE_ERROR;
-					}
-					flagsByte = Utility.binToHex(nix + bpe);
-					// noinspection StringConcatenationInLoop
-					textRecord += addToTextRecord(textRecordTemp, flagsByte, displacement, Format.THREE);
-					recordLengths.add(3);
-					break;
-				case FOUR:
-					// noinspection UnusedAssignment
-					firstOperand = line.getFirstOperand();
-					nix = getNIX(line);
-					bpe = getBPE(line, Format.FOUR);
-					if (bpe.equals(BASE_ERROR)) {
-						return BASE_ERROR;
-					}
-					flagsByte = Utility.binToHex(nix + bpe);
-					// noinspection StringConcatenationInLoop
-					textRecord += addToTextRecord(textRecordTemp, flagsByte, displacement, Format.FOUR);
-					recordLengths.add(4);
-					break;
-				default:
+		Instruction currentInstruction = line.getInstruction();
+		if (currentInstruction != null) {
+			int opcode = currentInstruction.getOpcode();
+			firstOperand = line.getFirstOperand();
+			if (session.getLiteralTable().get(firstOperand) != null) {
+				session.getLiterals().add(firstOperand);
+			}
+			switch (currentInstruction.getFormat()) {
+			case ONE:
+				addInstruction(encoded, InstructionEncoder.formatOne(opcode), 1);
+				break;
+			case TWO:
+				int firstRegister = RegisterTable.registerTable.get(line.getFirstOperand());
+				int secondRegister = currentInstruction.hasSecondOperand()
+						? RegisterTable.registerTable.get(line.getSecondOperand())
+						: 0;
+				addInstruction(encoded, InstructionEncoder.formatTwo(opcode, firstRegister, secondRegister), 2);
+				break;
+			case THREE:
+			case FOUR:
+				nix = getNIX(line);
+				bpe = getBPE(line, currentInstruction.getFormat());
+				if (bpe == BASE_ERROR) {
+					encoded.setDisplacementError(true);
 					break;
 				}
-			} else {
-				// Directive
-				String data = line.getFirstOperand().toUpperCase();
-				String[] operands = data.split(",");
-				char type;
-				switch (mnemonic) {
-				case "WORD":
-					for (String operand : operands) {
-						type = operand.charAt(0);
-						switch (type) {
-						case 'X':
-							// textRecord += Utility.getZeros(6 - operand.length()) +
-							// extractOperand(operand);
-							break;
-						case 'C':
-							// textRecord += convertToAscii(extractOperand(operand));
-							break;
-						default:
-							// noinspection StringConcatenationInLoop
-							textRecord += String.format("%1$06X", Integer.parseInt(operand));
-							recordLengths.add(3);
-							break;
-						}
+				encoded.setFlags(nix | bpe, displacement);
+				if (currentInstruction.getFormat() == Format.THREE)
+					addInstruction(encoded, InstructionEncoder.formatThree(opcode, nix | bpe, displacement), 3);
+				else
+					addInstruction(encoded, InstructionEncoder.formatFour(opcode, nix | bpe, displacement), 4);
+				break;
+			default:
+				break;
+			}
+		} else if (line.getDirective() != null) {
+			String data = line.getFirstOperand().toUpperCase();
+			String[] operands = data.split(",");
+			char type;
+			switch (line.getDirective().getType()) {
+			case WORD:
+				for (String operand : operands) {
+					type = operand.charAt(0);
+					switch (type) {
+					case 'X':
+						// textRecord += Utility.getZeros(6 - operand.length()) +
+						// extractOperand(operand);
+						break;
+					case 'C':
+						// textRecord += convertToAscii(extractOperand(operand));
+						break;
+					default:
+						addCode(encoded, String.format("%1$06X", Integer.parseInt(operand) & 0xFFFFFF), 3);
+						break;
 					}
-					break;
-				case "BYTE":
-					for (String operand : operands) {
-						type = operand.charAt(0);
-						switch (type) {
-						case 'X':
-							operand = extractOperand(operand);
-							textRecordTemp = Utility.getZeros(
-									(int) Math.ceil((double) (operand.length()) / 2) * 2 - operand.length()) + operand;
-							// noinspection StringConcatenationInLoop
-							textRecord += textRecordTemp;
-							recordLengths.add(textRecordTemp.length() / 2);
-							break;
-						case 'C':
-							operand = extractOperand(operand);
-							// noinspection StringConcatenationInLoop
-							textRecord += convertToAscii(operand);
-							recordLengths.add(operand.length());
-							break;
-						default:
-							// noinspection StringConcatenationInLoop
-							textRecord += String.format("%1$02X", Integer.parseInt(operand));
-							recordLengths.add(1);
-							break;
-						}
+				}
+				break;
+			case BYTE:
+				for (String operand : operands) {
+					type = operand.charAt(0);
+					switch (type) {
+					case 'X':
+						operand = extractOperand(operand);
+						textRecordTemp = Utility.getZeros(
+								(int) Math.ceil((double) (operand.length()) / 2) * 2 - operand.length()) + operand;
+						addCode(encoded, textRecordTemp, textRecordTemp.length() / 2);
+						break;
+					case 'C':
+						operand = extractOperand(operand);
+						addCode(encoded, convertToAscii(operand), operand.length());
+						break;
+					default:
+						addCode(encoded, String.format("%1$02X", Integer.parseInt(operand) & 0xFF), 1);
+						break;
 					}
-					break;
-				case "RESW":
-					firstOperand = line.getFirstOperand();
-					reserves.add(3 * Integer.parseInt(firstOperand));
-					break;
-				case "RESB":
-					firstOperand = line.getFirstOperand();
-					reserves.add(Integer.parseInt(firstOperand));
-					break;
-				case "LTORG":
-					textRecord += ltorgOccured();
-					break;
-				default:
-					break;
 				}
+				break;
+			case RESW:
+				firstOperand = line.getFirstOperand();
+				session.getReserves().add(3 * Integer.parseInt(firstOperand));
+				break;
+			case RESB:
+				firstOperand = line.getFirstOperand();
+				session.getReserves().add(Integer.parseInt(firstOperand));
+				break;
+			case LTORG:
+				ltorgOccured(encoded);
+				break;
+			default:
+				break;
 			}
 		}
-		return formatTextRecord(textRecord + ltorgOccured());
+		return encoded;
 	}
 
-	private String getAddressOfFirstExecutableInstruction() {
+	private String getTextRecord() {
 
-		String label, address;
-		label = address = null;
-		for (Line line : lineList) {
-			if (line.getMnemonic().equalsIgnoreCase("END")) {
-				label = line.getFirstOperand();
-				break;
-			}
-		}
-		for (Line line : lineList) {
-			if (line.getLabel().equalsIgnoreCase(label)) {
-				address = line.getLocation();
-			}
-		}
-		return "00" + address;
+		StringBuilder textRecord = new StringBuilder();
+		TextRecordWriter writer = new TextRecordWriter(textRecord, getStartOfProgram(),
+				textRecordLength);
+		for (EncodedLine encoded : encodedLines)
+			encoded.writeTo(writer);
+		writer.flush();
+		return textRecord.toString();
+	}
+
+	private int getAddressOfFirstExecutableInstruction() {
+
+		Line endLine = session.getProgramCounter().getEndLine();
+		if (endLine == null || endLine.getFirstOperand().equals(""))
+			return getStartOfProgram();
+		String label = endLine.getFirstOperand();
+		int address = session.getProgramCounter().getLabelLocation(label);
+		if (address == ProgramCounter.NO_LOCATION)
+			address = session.getProgramCounter().getLabelLocation(label.toUpperCase());
+		return address == ProgramCounter.NO_LOCATION ? getStartOfProgram() : address;
 	}
 
 	private String getEndRecord() {
 
-		String addressOfFirstExecutableInstruction = getAddressOfFirstExecutableInstruction();
+		String addressOfFirstExecutableInstruction = "00"
+				+ Utility.convertToHexa(getAddressOfFirstExecutableInstruction());
 		return "E^" + addressOfFirstExecutableInstruction; // Return endRecord
 	}
 
 	private String getObjectCode() {
 
 		String textRecord = getTextRecord();
-		if (textRecord.equals(BASE_ERROR))
-			return BASE_ERROR;
 		String headerRecord = getHeaderRecord();
 		String endRecord = getEndRecord();
-		return headerRecord + "\n" + textRecord + "\n" + endRecord; // Return objectCode
+		return headerRecord + "\n" + textRecord + endRecord; // Return objectCode
 	}
 
-	private void passTwo() {
+	void passTwo() {
 
-		String objectCode = getObjectCode();
-		reportEndPassTwo();
-		if (objectCode.equals(BASE_ERROR)) {
+		boolean encoded = encodeLines();
+		phaseDone(0.8);
+		reportEndPassTwo(encoded);
+		if (!encoded) {
 			noErrorsInPassTwo = false;
 			return;
 		}
-		Utility.writeFile(objectCode, "res/LIST/objFile.o");
+		Utility.writeFile(getObjectCode(), objFilePath);
 		noErrorsInPassTwo = true;
 	}
 
+	void newSession() {
+
+		session = new AssemblySession();
+		encodedLines = new ArrayList<>();
+		encodedSymbols = new int[0];
+		noErrorsInPassOne = false;
+		noErrorsInPassTwo = false;
+		complete = false;
+		assembledSource = null;
+		outputsPending = false;
+	}
+
 	public void assemble(String program, boolean restricted) {
+		source = program;
+		assemble(new StringReader(program), restricted);
+		keepLines(program, restricted);
+	}
 
+	/**
+	 * @param program
+	 *            the source code, read straight into pass one.
+	 * @param restricted
+	 *            restricted columns or free format source.
+	 *
+	 * @throws CancellationException
+	 *             if the thread was interrupted, see phaseDone.
+	 */
+	public void assemble(Reader program, boolean restricted) {
+
+		newSession();
 		try {
 			passOne(program, restricted);
 			if (noErrorsInPassOne)
 				passTwo();
+			complete = true;
+			progressListener.accept(1);
+		} catch (CancellationException e) {
+			newSession();
+			throw e;
 		} catch (Exception e) {
 			System.out.println("=================\nERROR IN ASSEMBLY\n=================");
 			e.printStackTrace();
 		}
-		Utility.clearAll();
 	}
 
 	public String getListFile() {
 
-		path = Paths.get(".").toAbsolutePath().normalize().toString() + "/res/LIST/listFile.txt";
-		ArrayList<String> arr = SourceReader.getInstance().readFile(path);
-		String append = "";
-		for (String s : arr) {
-			// noinspection StringConcatenationInLoop
-			append += s + "\n";
-		}
-		return append;
+		writeOutputs();
+		path = Paths.get(listFilePath).toAbsolutePath().normalize().toString();
+		return readLines(path);
 	}
 
 	public String loadFile(String path) {
 
 		this.path = path;
-		ArrayList<String> arr = SourceReader.getInstance().readFile(path);
-		String append = "";
-		for (String s : arr) {
-			// noinspection StringConcatenationInLoop
-			append += s + "\n";
-		}
-		return append;
-	}
-
-	private void reportEndPassTwo() {
-		String append = getListFile();
-
-		final String lineSeparator = "-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-";
-		final String startPassTwo = "\n-_-_-_-_-_-_-_-_-_- S   T   A   R   T      O   F      P   A   S   S   2 -_-_-_-_-_-_-_-_-_-_-\n\n";
-
-		final String TABLE_FORM = "LINES" + Utility.getSpaces(7) + "Code" + Utility.getSpaces(5) + " LC"
-				+ Utility.getSpaces(7) + "Source Statement\n\n";
-		append = append + lineSeparator + startPassTwo + TABLE_FORM;
-		int len = CI.getLinesList().size();
-		ArrayList<String> codeInstToBePrinted = new ArrayList<>();
-		for (int i = 0; i < len; i++) {
-			codeInstToBePrinted.add(Utility.getSpaces(6));
-		}
-
-		boolean displacementError = false;
-		ArrayList<String> buffer = new ArrayList<>();
-		for (int i = 0; i < len; i++) {
-			buffer.add("");
-			String lineCount = String.valueOf(i);
-			String instructionTobeWritten = CI.getLinesList().get(i).toString();
-			Instruction currentInstruction = InstructionTable.instructionTable.get(lineList.get(i).getMnemonic());
-			if (Utility.isInstruction(lineList.get(i).getMnemonic()) && (currentInstruction.getFormat() == Format.THREE
-					|| currentInstruction.getFormat() == Format.FOUR)) {
-				String NIX = getNIX(lineList.get(i));
-				String BPE = getBPE(lineList.get(i), currentInstruction.getFormat());
-				if (BPE.equals(BASE_ERROR)) {
-					displacementError = true;
-				} else {
-					buffer.set(i, nixBpeToString(NIX, BPE));
-				}
-			}
-			buffer.set(i,
-					buffer.get(i) + lineCount + Utility.getSpaces(12 - lineCount.length()) + codeInstToBePrinted.get(i)
-							+ Utility.getSpaces(20 - (codeInstToBePrinted.get(i).length() + (12 - lineCount.length())))
-							+ instructionTobeWritten + "\n");
-		}
-		if (!displacementError) {
-			codeInstToBePrinted = codeForInstListFile();
-		}
-		for (int i = 0; i < len; i++) {
-			String firstPart = "";
-			String secondPart = "";
-
-			if (codeInstToBePrinted.get(i).equals("")) {
-				codeInstToBePrinted.set(i, Utility.getSpaces(6));
-			}
-
-			if (Character.isDigit(buffer.get(i).charAt(0))) {
-				firstPart = buffer.get(i).substring(0, 14 - Integer.toString(i).length()) + codeInstToBePrinted.get(i);
-				secondPart = buffer.get(i).substring(18);
-			} else {
-				firstPart = buffer.get(i).substring(0, 81 + (12 - Integer.toString(i).length()))
-						+ codeInstToBePrinted.get(i);
-				secondPart = buffer.get(i).substring(97);
-			}
-			append += firstPart + secondPart;
-		}
-		Utility.writeFile(append, "res/LIST/listFile.txt");
+		return readLines(path);
 	}
 
-	private ArrayList<String> codeForInstListFile() {
-		ArrayList<String> codeToBePrinted = new ArrayList<>();
-		for (int i = 0; i < lineList.size(); i++)
-			codeToBePrinted.add("");
+	private static String readLines(String path) {
+		ArrayList<String> arr = SourceReader.getInstance().readFile(path);
+		StringBuilder append = new StringBuilder();
+		for (String s : arr)
+			append.append(s).append('\n');
+		return append.toString();
+	}
 
-		int j = 0;
-		for (int i = 0; i < lineList.size(); i++) {
-			Instruction currentInstruction = InstructionTable.instructionTable.get(lineList.get(i).getMnemonic());
-			if (Utility.isInstruction(lineList.get(i).getMnemonic())) {
-				switch (currentInstruction.getFormat()) {
-				case FOUR:
-				case THREE:
-					codeToBePrinted.set(i, objCodeForInst.get(j));
-					j++;
-					break;
-				case TWO:
-					codeToBePrinted.set(i, objCodeForInst.get(j).substring(2) + Utility.getSpaces(2));
-					j++;
-					break;
-				case ONE:
-					codeToBePrinted.set(i, objCodeForInst.get(j).substring(4) + Utility.getSpaces(4));
-					j++;
-					break;
-				default:
-					break;
-				}
-			} else if ((lineList.get(i).getMnemonic().equalsIgnoreCase("WORD")
-					|| lineList.get(i).getMnemonic().equalsIgnoreCase("BYTE"))) {
-				codeToBePrinted.set(i, objCodeForInst.get(j));
-				j++;
-			} else {
-				codeToBePrinted.set(i, Utility.getSpaces(6));
+	/**
+	 * @param showCode
+	 *            false if some line could not be encoded, the code column is then
+	 *            left empty.
+	 */
+	private void reportEndPassTwo(boolean showCode) {
+
+		try (ListingWriter listing = new ListingWriter(listingWriter(true))) {
+			listing.writePassTwoHeader();
+			int len = lineList.size();
+			for (int i = 0; i < len; i++) {
+				Line line = lineList.get(i);
+				EncodedLine encoded = encodedLines.get(i);
+				listing.writeCodeRow(i, line, encoded, showCode ? codeForListFile(line, encoded) : "");
 			}
+		} catch (IOException e) {
+			System.err.println(e);
 		}
-		return codeToBePrinted;
 	}
 
-	private String nixBpeToString(String NIX, String BPE) {
-		return "\n" + Utility.getSpaces(40) + "n=" + NIX.charAt(0) + Utility.getSpaces(4) + "i=" + NIX.charAt(1)
-				+ Utility.getSpaces(4) + "x=" + NIX.charAt(2) + Utility.getSpaces(4) + "b=" + BPE.charAt(0)
-				+ Utility.getSpaces(4) + "p=" + BPE.charAt(1) + Utility.getSpaces(4) + "e=" + BPE.charAt(2) + "\n";
+	/**
+	 * @return the code printed in the listing, instructions and constants only.
+	 */
+	private String codeForListFile(Line line, EncodedLine encoded) {
+		if (line.getInstruction() != null || line.isDirective(DirectiveType.WORD)
+				|| line.isDirective(DirectiveType.BYTE))
+			return encoded.getCode();
+		return "";
 	}
 }
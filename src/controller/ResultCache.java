@@ -0,0 +1,337 @@
+package controller;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import model.tables.InstructionTable;
+
+/**
+ * Keeps the listing, symbol table and object file of assembled programs, keyed
+ * by a SHA-256 hash of the source bytes, the format mode and the opcode table.
+ * An unchanged source is then not assembled again, its files are copied from
+ * the cache.
+ *
+ * Entries are files of a directory on disk, one per key, the least recently
+ * used are deleted when they take more than the size limit. The most recently
+ * used entries are also kept in memory, up to a limit of their own.
+ *
+ * Safe to share between threads and between processes using the same
+ * directory. Outputs depend on the text record length too, only those of the
+ * default one should be cached.
+ */
+public class ResultCache {
+
+	// part of every key, to be changed whenever the outputs or the entry format do
+	private static final String VERSION = "2";
+	private static final String ENTRY_EXTENSION = ".entry";
+	private static final String TEMPORARY_EXTENSION = ".tmp";
+	// eviction goes below the limit, so it does not run again on the next entry
+	private static final double EVICTION_TARGET = 0.9;
+
+	private final Path directory;
+	private final long maxDiskBytes;
+	private final long maxMemoryBytes;
+	private final byte[] opcodeTableHash;
+	private final AtomicLong diskBytes = new AtomicLong();
+
+	// least recently used first
+	private final LinkedHashMap<String, Result> memory = new LinkedHashMap<>(16, 0.75f, true);
+	private long memoryBytes = 0;
+
+	/**
+	 * The files of one assembly.
+	 */
+	public static class Result {
+
+		private final boolean noErrors;
+		private final byte[] listing;
+		private final byte[] symbolTable;
+		private final byte[] objectFile;
+
+		/**
+		 * @param objectFile
+		 *            null if the assembly did not write one.
+		 */
+		public Result(boolean noErrors, byte[] listing, byte[] symbolTable, byte[] objectFile) {
+			this.noErrors = noErrors;
+			this.listing = listing;
+			this.symbolTable = symbolTable;
+			this.objectFile = objectFile;
+		}
+
+		/**
+		 * @return the files an assembly just wrote, the object file only if it
+		 *         had no errors.
+		 */
+		public static Result read(boolean noErrors, Path listing, Path symbolTable, Path objectFile)
+				throws IOException {
+			return new Result(noErrors, Files.readAllBytes(listing), Files.readAllBytes(symbolTable),
+					noErrors ? Files.readAllBytes(objectFile) : null);
+		}
+
+		/**
+		 * writes the files as the assembly did, an object file of an earlier run
+		 * is deleted if the assembly did not write one.
+		 */
+		public void write(Path listing, Path symbolTable, Path objectFile) throws IOException {
+			Files.write(listing, this.listing);
+			Files.write(symbolTable, this.symbolTable);
+			if (this.objectFile != null)
+				Files.write(objectFile, this.objectFile);
+			else
+				Files.deleteIfExists(objectFile);
+		}
+
+		public boolean isNoErrors() {
+			return noErrors;
+		}
+
+		private long size() {
+			return listing.length + symbolTable.length + (objectFile == null ? 0 : objectFile.length);
+		}
+	}
+
+	/**
+	 * @param directory
+	 *            holds the entries, it is created if it does not exist.
+	 * @param maxDiskBytes
+	 *            size the entries on disk may take together.
+	 * @param maxMemoryBytes
+	 *            size the entries kept in memory may take together.
+	 */
+	public ResultCache(Path directory, long maxDiskBytes, long maxMemoryBytes) throws IOException {
+		this.directory = directory;
+		this.maxDiskBytes = maxDiskBytes;
+		this.maxMemoryBytes = maxMemoryBytes;
+		this.opcodeTableHash = newDigest().digest(Files.readAllBytes(Paths.get(InstructionTable.OPCODE_FILE)));
+		Files.createDirectories(directory);
+		long size = 0;
+		for (Path entry : listEntries())
+			size += sizeOf(entry);
+		diskBytes.set(size);
+	}
+
+	/**
+	 * @return the key of the outputs of a source, as hex digits.
+	 */
+	public String key(byte[] source, boolean restricted) {
+		MessageDigest digest = newDigest();
+		digest.update(VERSION.getBytes(StandardCharsets.US_ASCII));
+		digest.update((byte) (restricted ? 1 : 0));
+		digest.update(opcodeTableHash);
+		digest.update(source);
+		StringBuilder key = new StringBuilder();
+		for (byte b : digest.digest())
+			key.append(String.format("%02x", b));
+		return key.toString();
+	}
+
+	/**
+	 * @return the result kept for the key, null if there is none.
+	 */
+	public Result get(String key) {
+		Path entry = entryPath(key);
+		Result result;
+		synchronized (memory) {
+			result = memory.get(key);
+		}
+		if (result != null) {
+			// the entry on disk is used too, or it would be evicted first
+			touch(entry);
+			return result;
+		}
+		try {
+			result = readEntry(entry);
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			// an entry cut short by a crash is dropped
+			delete(entry);
+			return null;
+		}
+		touch(entry);
+		remember(key, result);
+		return result;
+	}
+
+	public void put(String key, Result result) {
+		remember(key, result);
+		Path entry = entryPath(key);
+		try {
+			// written aside and moved in, so a reader never sees half an entry
+			Path temporary = Files.createTempFile(directory, key, TEMPORARY_EXTENSION);
+			try {
+				writeEntry(temporary, result);
+				long previous = Files.exists(entry) ? sizeOf(entry) : 0;
+				long size = sizeOf(temporary);
+				Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				if (diskBytes.addAndGet(size - previous) > maxDiskBytes)
+					evict();
+			} finally {
+				Files.deleteIfExists(temporary);
+			}
+		} catch (IOException e) {
+			// the cache only saves time, the result was written anyway
+			System.err.println(e);
+		}
+	}
+
+	private void remember(String key, Result result) {
+		if (result.size() > maxMemoryBytes)
+			return;
+		synchronized (memory) {
+			Result previous = memory.put(key, result);
+			if (previous != null)
+				memoryBytes -= previous.size();
+			memoryBytes += result.size();
+			Iterator<Result> eldest = memory.values().iterator();
+			while (memoryBytes > maxMemoryBytes && eldest.hasNext()) {
+				memoryBytes -= eldest.next().size();
+				eldest.remove();
+			}
+		}
+	}
+
+	/**
+	 * deletes the entries used least recently until the rest fit well within the
+	 * limit.
+	 */
+	private synchronized void evict() throws IOException {
+		List<Path> entries = listEntries();
+		Map<Path, FileTime> usedAt = new HashMap<>();
+		long size = 0;
+		for (Path entry : entries) {
+			usedAt.put(entry, lastModified(entry));
+			size += sizeOf(entry);
+		}
+		entries.sort(Comparator.comparing(usedAt::get));
+		long target = (long) (maxDiskBytes * EVICTION_TARGET);
+		for (int i = 0; i < entries.size() && size > target; i++) {
+			Path entry = entries.get(i);
+			long entrySize = sizeOf(entry);
+			if (delete(entry))
+				size -= entrySize;
+		}
+		diskBytes.set(size);
+	}
+
+	private List<Path> listEntries() throws IOException {
+		List<Path> entries = new ArrayList<>();
+		try (Stream<Path> files = Files.list(directory)) {
+			files.filter(file -> file.toString().endsWith(ENTRY_EXTENSION)).forEach(entries::add);
+		}
+		return entries;
+	}
+
+	private Path entryPath(String key) {
+		return directory.resolve(key + ENTRY_EXTENSION);
+	}
+
+	/*
+	 * an entry is the error flag then the listing, the symbol table and the
+	 * object file, each as its length and its bytes. The object file is -1 long
+	 * if there is none.
+	 */
+
+	private static Result readEntry(Path entry) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+			boolean noErrors = in.readBoolean();
+			byte[] listing = readBytes(in);
+			byte[] symbolTable = readBytes(in);
+			byte[] objectFile = readBytes(in);
+			return new Result(noErrors, listing, symbolTable, objectFile);
+		}
+	}
+
+	private static byte[] readBytes(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0)
+			return null;
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	private static void writeEntry(Path entry, Result result) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(entry)))) {
+			out.writeBoolean(result.noErrors);
+			writeBytes(out, result.listing);
+			writeBytes(out, result.symbolTable);
+			writeBytes(out, result.objectFile);
+		}
+	}
+
+	private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+		if (bytes == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/* another process may delete an entry at any time */
+
+	private static long sizeOf(Path entry) {
+		try {
+			return Files.size(entry);
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	private static FileTime lastModified(Path entry) {
+		try {
+			return Files.getLastModifiedTime(entry);
+		} catch (IOException e) {
+			return FileTime.fromMillis(0);
+		}
+	}
+
+	/* the entry is used, it is the last one to be evicted */
+	private static void touch(Path entry) {
+		try {
+			Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			// evicted since it was read
+		}
+	}
+
+	private static boolean delete(Path entry) {
+		try {
+			return Files.deleteIfExists(entry);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform has SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -1,22 +1,16 @@
 package controller;
 
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
-import javax.script.ScriptException;
+import model.utility.Utility;
 
 public class Test {
 
 	public static void main(String[] args) {
-		// System.out.println(Utility.evaluateExpression("(506+8)"));
-		ScriptEngineManager mgr = new ScriptEngineManager();
-		ScriptEngine engine = mgr.getEngineByName("JavaScript");
 		String foo = "40+2+(5+6)*2";
-		try {
-			System.out.println(engine.eval(foo));
-		} catch (ScriptException e) {
-			System.out.println("Expression evaluation failed!!!");
-		}
-
+		System.out.println(Utility.evaluateExpression(foo));
+		System.out.println(Utility.evaluateExpression("(506+8)"));
+		System.out.println(Utility.evaluateExpression("(7/2)"));
+		System.out.println(Utility.evaluateExpression("(8388607+1)"));
+		System.out.println(Utility.evaluateExpression("(1/0)"));
 	}
 
 }
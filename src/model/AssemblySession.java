@@ -0,0 +1,63 @@
+package model;
+
+import java.util.ArrayList;
+
+import model.tables.LabelIndex;
+import model.tables.LiteralTable;
+import model.tables.SymbolTable;
+
+/**
+ * Owns every piece of state that belongs to a single assembly run. The opcode,
+ * directive, register and error tables are read-only and shared, so separate
+ * sessions can assemble on separate threads without any locking.
+ *
+ * A session is used for one run only and then thrown away, nothing has to be
+ * cleared between two assemblies.
+ */
+public class AssemblySession {
+
+	// ids of the labels defined in the program, in source order
+	private final LabelIndex labelIndex = new LabelIndex();
+
+	private final SymbolTable symbolTable = new SymbolTable(labelIndex);
+	private final LiteralTable literalTable = new LiteralTable();
+	private final ProgramCounter programCounter = new ProgramCounter(this);
+	private final ErrorChecker errorChecker = new ErrorChecker(this);
+
+	// pass two bookkeeping
+	private final ArrayList<Integer> recordLengths = new ArrayList<>();
+	private final ArrayList<Integer> reserves = new ArrayList<>();
+	private final ArrayList<String> literals = new ArrayList<>();
+
+	public SymbolTable getSymbolTable() {
+		return symbolTable;
+	}
+
+	public LiteralTable getLiteralTable() {
+		return literalTable;
+	}
+
+	public ProgramCounter getProgramCounter() {
+		return programCounter;
+	}
+
+	public ErrorChecker getErrorChecker() {
+		return errorChecker;
+	}
+
+	public LabelIndex getLabelIndex() {
+		return labelIndex;
+	}
+
+	public ArrayList<Integer> getRecordLengths() {
+		return recordLengths;
+	}
+
+	public ArrayList<Integer> getReserves() {
+		return reserves;
+	}
+
+	public ArrayList<String> getLiterals() {
+		return literals;
+	}
+}
@@ -2,28 +2,40 @@ package model;
 
 import java.util.ArrayList;
 
+import model.enums.DirectiveType;
 import model.tables.ErrorTable;
 
+/**
+ * Collects the fields of one source line at a time and turns them into a Line
+ * row of the LineStore as soon as the line is complete, so only the store is
+ * kept for pass two. Lines get their location as they come but are verified once the whole
+ * source is read, because an operand may refer to a label defined later.
+ */
 public class CommandInfo {
 
-	// private static CommandInfo instance = null;
+	private final AssemblySession session;
+	private ProgramCounter pc;
 
-	// public CommandInfo() {
-	// }
+	// fields of the line being read
+	private int sourceLine = 0;
+	private String label = "";
+	private String mnemonic = "";
+	private String addressingMode = "";
+	private String operand1 = "";
+	private String operand2 = "";
+	private String comment = "";
 
-	private ProgramCounter pc = ProgramCounter.getInstance();
-
-	// info for each line command
-	private ArrayList<String> wholeInstruction = new ArrayList<>();
-	public static ArrayList<String> labelList = new ArrayList<>();
-	private ArrayList<String> mnemonicList = new ArrayList<>();
-	private ArrayList<String> addressingModeList = new ArrayList<>();
-	private ArrayList<String> operand1List = new ArrayList<>();
-	private ArrayList<String> operand2List = new ArrayList<>();
-	private ArrayList<String> commentList = new ArrayList<>();
+	private int startCounter = 0;
+	private int endCounter = 0;
 
 	// All of the lines
-	private ArrayList<Line> linesList = new ArrayList<>();
+	private LineStore linesList;
+
+	public CommandInfo(AssemblySession session) {
+		this.session = session;
+		this.pc = session.getProgramCounter();
+		this.linesList = new LineStore(session.getLabelIndex());
+	}
 
 	public void addDefaults() {
 		addLabel("(~)");
@@ -34,172 +46,128 @@ public class CommandInfo {
 
 	}
 
-	public boolean addToLineList() {
-		int length = wholeInstruction.size();
-		Line line;
-		for (int i = 0; i < length; i++) {
-			line = new Line(labelList.get(i), mnemonicList.get(i).toUpperCase(), addressingModeList.get(i),
-					operand1List.get(i), operand2List.get(i), commentList.get(i));
-			ErrorChecker.getInstance().verifyLine(line);
-			pc.updateCounters(line, linesList);
-			linesList.add(line);
+	/**
+	 * appends a line of the fields added since the previous one to the lines
+	 * list and gives it its location.
+	 */
+	public void addLine() {
+		Line line = linesList.add(sourceLine, label, mnemonic, addressingMode, operand1, operand2, comment);
+		label = mnemonic = addressingMode = operand1 = operand2 = comment = "";
+		pc.updateCounters(line, linesList);
+	}
+
+	/**
+	 * to be called after the last line of the source, verifies every line now
+	 * that all of the labels are known.
+	 */
+	public void endOfSource() {
+		ErrorChecker errorChecker = session.getErrorChecker();
+		for (Line line : linesList) {
+			errorChecker.verifyLine(line);
+			verifyStartAndEnd(line);
 		}
-		verifyEndAndStartStatements();
-		return true;
+		if (endCounter < 1) {
+			System.out.println(linesList.get(linesList.size() - 1));
+			linesList.get(linesList.size() - 1).setError(ErrorTable.MISSING_END_STATEMENT);
+		}
+		linesList.markVerified(0, linesList.size());
 	}
 
 	public boolean checkForErrors() {
 
 		for (Line line : linesList) {
-			if (!line.getError().equals("")) {
+			if (line.hasError()) {
 				return false;
 			}
 		}
 		return true;
 	}
 
-	public void verifyEndAndStartStatements() {
-		int endCounter = 0;
-		int startCounter = 0;
-		for (Line line : linesList) {
-			String mnemonic = line.getMnemonic();
-			if (mnemonic.equalsIgnoreCase("END")) {
-				endCounter++;
-				if (endCounter > 1)
-					line.setError(ErrorTable.errorList[ErrorTable.MORE_THAN_ONE_END]);
-			}
-			if (mnemonic.equalsIgnoreCase("START")) {
-				startCounter++;
-				if (startCounter > 1)
-					line.setError(ErrorTable.errorList[ErrorTable.MORE_THAN_ONE_START]);
-			}
+	private void verifyStartAndEnd(Line line) {
+		if (line.isDirective(DirectiveType.END)) {
+			endCounter++;
+			if (endCounter > 1)
+				line.setError(ErrorTable.MORE_THAN_ONE_END);
 		}
-
-		if (endCounter < 1) {
-			System.out.println(linesList.get(linesList.size() - 1));
-			linesList.get(linesList.size() - 1).setError(ErrorTable.errorList[ErrorTable.MISSING_END_STATEMENT]);
+		if (line.isDirective(DirectiveType.START)) {
+			startCounter++;
+			if (startCounter > 1)
+				line.setError(ErrorTable.MORE_THAN_ONE_START);
 		}
 	}
 
-	public ArrayList<String> getCommentList() {
-		return commentList;
-	}
-
-	public void setCommentList(ArrayList<String> commentList) {
-		this.commentList = commentList;
-	}
-
-	public ArrayList<String> getLabelList() {
-		return labelList;
-	}
-
-	public void setLabelList(ArrayList<String> labelList) {
-		CommandInfo.labelList = labelList;
-	}
-
-	public ArrayList<String> getMnemonicList() {
-		return mnemonicList;
-	}
-
-	public void setMnemonicList(ArrayList<String> mnemonicList) {
-		this.mnemonicList = mnemonicList;
-	}
-
-	public ArrayList<String> getAddressingModeList() {
-		return addressingModeList;
-	}
-
-	public void setAddressingModeList(ArrayList<String> addressingModeList) {
-		this.addressingModeList = addressingModeList;
-	}
-
-	public ArrayList<String> getOperand1List() {
-		return operand1List;
-	}
-
-	public void setOperand1List(ArrayList<String> operand1List) {
-		this.operand1List = operand1List;
-	}
-
-	public ArrayList<String> getOperand2List() {
-		return operand2List;
-	}
-
-	public void setOperand2List(ArrayList<String> operand2List) {
-		this.operand2List = operand2List;
+	/**
+	 * @return an entry for every line with an error, in source order.
+	 */
+	public ArrayList<Diagnostic> getDiagnostics() {
+		ArrayList<Diagnostic> diagnostics = new ArrayList<>();
+		for (Line line : linesList) {
+			if (line.hasError())
+				diagnostics.add(
+						new Diagnostic(line.getSourceLine(), line.getIndex(), line.getErrorCode(), line.getError()));
+		}
+		return diagnostics;
 	}
 
-	public ArrayList<Line> getLinesList() {
+	public LineStore getLinesList() {
 		return linesList;
 	}
 
-	public void setLinesList(ArrayList<Line> linesList) {
-		this.linesList = linesList;
-	}
-
-	public ArrayList<String> getWholeInstruction() {
-		return wholeInstruction;
-	}
-
-	public void setWholeInstruction(ArrayList<String> wholeInstruction) {
-		this.wholeInstruction = wholeInstruction;
-	}
-
-	public void addWholeInstruction(String s) {
-		if (s == null) {
-			wholeInstruction.add("");
-			return;
-		}
-		wholeInstruction.add(s);
+	/**
+	 * @param number
+	 *            number in the source of the line whose fields come next.
+	 */
+	public void addSourceLine(int number) {
+		sourceLine = number;
 	}
 
 	public void addLabel(String s) {
 		if (s == null) {
-			labelList.add("");
+			label = "";
 			return;
 		}
-		labelList.add(s);
+		label = s;
 	}
 
 	public void addCommand(String s) {
 		if (s == null) {
-			mnemonicList.add("");
+			mnemonic = "";
 			return;
 		}
-		mnemonicList.add(s);
+		mnemonic = s;
 	}
 
 	public void addAddressMode(String s) {
 		if (s == null) {
-			addressingModeList.add("");
+			addressingMode = "";
 			return;
 		}
-		addressingModeList.add(s);
+		addressingMode = s;
 	}
 
 	public void addOperand1(String s) {
 		if (s == null) {
-			operand1List.add("");
+			operand1 = "";
 			return;
 		}
-		operand1List.add(s);
+		operand1 = s;
 	}
 
 	public void addOperand2(String s) {
 
 		if (s == null) {
-			operand2List.add("");
+			operand2 = "";
 			return;
 		}
-		operand2List.add(s);
+		operand2 = s;
 	}
 
 	public void addComment(String s) {
 		if (s == null) {
-			commentList.add("");
+			comment = "";
 			return;
 		}
-		commentList.add(s);
+		comment = s;
 	}
 
 }
\ No newline at end of file
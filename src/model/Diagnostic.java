@@ -0,0 +1,50 @@
+package model;
+
+/**
+ * An error found in a line of a program, as reported by a check of the source.
+ */
+public class Diagnostic {
+
+	private final int sourceLine;
+	private final int line;
+	private final int code;
+	private final String message;
+
+	/**
+	 * @param sourceLine
+	 *            number of the line in the source file, counting from 1.
+	 * @param line
+	 *            number of the line in the listing, blank lines are not counted.
+	 * @param code
+	 *            index of the error in ErrorTable.errorList.
+	 * @param message
+	 *            the error as printed in the listing.
+	 */
+	public Diagnostic(int sourceLine, int line, int code, String message) {
+		this.sourceLine = sourceLine;
+		this.line = line;
+		this.code = code;
+		this.message = message;
+	}
+
+	public int getSourceLine() {
+		return sourceLine;
+	}
+
+	public int getLine() {
+		return line;
+	}
+
+	public int getCode() {
+		return code;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	@Override
+	public String toString() {
+		return sourceLine + ": " + message.trim();
+	}
+}
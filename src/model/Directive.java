@@ -1,14 +1,17 @@
 package model;
 
+import model.enums.DirectiveType;
 import model.enums.Format;
 
 public class Directive {
 
 	private String directive;
+	private DirectiveType type;
 	private Format format;
 
-	public Directive(String directive, Format format) {
-		this.directive = directive;
+	public Directive(DirectiveType type, Format format) {
+		this.directive = type.name();
+		this.type = type;
 		this.format = format;
 	}
 
@@ -20,6 +23,10 @@ public class Directive {
 		this.directive = directive;
 	}
 
+	public DirectiveType getType() {
+		return type;
+	}
+
 	public Format getFormat() {
 		return format;
 	}
@@ -0,0 +1,124 @@
+package model;
+
+import java.util.ArrayList;
+
+import model.utility.Utility;
+
+/**
+ * What pass two produced for one source line: the flags and displacement of a
+ * format 3/4 instruction and the object code the line adds to the text
+ * records. Both the object file and the listing are written from it, so every
+ * line is encoded once.
+ */
+public class EncodedLine {
+
+	private static final int NO_FLAGS = -1;
+
+	private int flags = NO_FLAGS;
+	private int displacement = 0;
+	// an instruction is kept as an int, it always comes before the other code
+	private int instruction = 0;
+	private int instructionBytes = 0;
+	// a constant is one piece, a literal pool one per literal
+	private ArrayList<String> code;
+	private int length = 0;
+	private boolean displacementError = false;
+	// location of the line when it was encoded
+	private int location = 0;
+
+	/**
+	 * @param objectCode
+	 *            the instruction built by InstructionEncoder.
+	 * @param bytes
+	 *            number of bytes of the instruction.
+	 */
+	public void setInstruction(int objectCode, int bytes) {
+		instruction = objectCode;
+		length += bytes;
+		instructionBytes = bytes;
+	}
+
+	/**
+	 * @param objectCode
+	 *            code in hex, two digits for each byte.
+	 * @param bytes
+	 *            number of bytes the code stands for.
+	 */
+	public void addCode(String objectCode, int bytes) {
+		if (code == null)
+			code = new ArrayList<>(1);
+		code.add(objectCode);
+		length += bytes;
+	}
+
+	/**
+	 * writes all of the code of the line, in order, at the location of the line.
+	 */
+	public void writeTo(TextRecordWriter writer) {
+		if (length > 0)
+			writer.moveTo(location);
+		if (instructionBytes > 0)
+			writer.write(instruction, instructionBytes);
+		if (code != null)
+			for (String piece : code)
+				writer.write(piece);
+	}
+
+	/**
+	 * @return all of the code of the line, empty if it has none.
+	 */
+	public String getCode() {
+		if (instructionBytes == 0 && code != null && code.size() == 1)
+			return code.get(0);
+		StringBuilder all = new StringBuilder();
+		if (instructionBytes > 0)
+			Utility.appendHex(all, instruction, instructionBytes);
+		if (code != null)
+			for (String piece : code)
+				all.append(piece);
+		return all.toString();
+	}
+
+	/**
+	 * @return number of bytes of object code.
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	public boolean hasFlags() {
+		return flags != NO_FLAGS;
+	}
+
+	/**
+	 * @return the n i x b p e flags as InstructionEncoder packs them.
+	 */
+	public int getFlags() {
+		return flags;
+	}
+
+	public int getDisplacement() {
+		return displacement;
+	}
+
+	public void setFlags(int flags, int displacement) {
+		this.flags = flags;
+		this.displacement = displacement;
+	}
+
+	public int getLocation() {
+		return location;
+	}
+
+	public void setLocation(int location) {
+		this.location = location;
+	}
+
+	public boolean isDisplacementError() {
+		return displacementError;
+	}
+
+	public void setDisplacementError(boolean displacementError) {
+		this.displacementError = displacementError;
+	}
+}
@@ -1,27 +1,21 @@
 package model;
 
-import java.util.ArrayList;
+import java.util.BitSet;
 
 import model.enums.OperandType;
-import model.tables.DirectiveTable;
 import model.tables.ErrorTable;
-import model.tables.InstructionTable;
 import model.utility.Utility;
 
 public class ErrorChecker {
 
-	private static ErrorChecker instance = null;
-	private String error;
-	private ArrayList<String> labelList = new ArrayList<>();
+	private final AssemblySession session;
+	// index of ErrorTable.errorList
+	private int error = ErrorTable.NO_ERROR;
+	// ids of the labels verified so far
+	private final BitSet definedLabels = new BitSet();
 
-	private ErrorChecker() {
-		/* Private Constructor for Singleton */
-	}
-
-	public static ErrorChecker getInstance() {
-		if (instance == null)
-			instance = new ErrorChecker();
-		return instance;
+	public ErrorChecker(AssemblySession session) {
+		this.session = session;
 	}
 
 	public void verifyLine(Line line) {
@@ -49,26 +43,36 @@ public class ErrorChecker {
 		setLineError(line);
 	}
 
+	/**
+	 * verifies a line that replaced one with the same label, the label is
+	 * counted as defined by the old line so it is defined again.
+	 */
+	public void verifyEditedLine(Line line) {
+		if (line.hasLabel())
+			definedLabels.clear(line.getLabelId());
+		verifyLine(line);
+	}
+
 	private boolean verifyIfMisplaced(Line line) {
 		String label = line.getLabel();
 		if (label.startsWith(" ")) {
-			error = ErrorTable.errorList[ErrorTable.MISPLACED_LABEL];
+			error = ErrorTable.MISPLACED_LABEL;
 			return true;
 		}
 		if (Utility.containsMisplacedLetter(label)) {
-			error = ErrorTable.errorList[ErrorTable.MISSING_MISPLACED_OPERATION_MNEMONIC];
+			error = ErrorTable.MISSING_MISPLACED_OPERATION_MNEMONIC;
 			return true;
 		}
 		if (line.getMnemonic().startsWith(" ")) {
-			error = ErrorTable.errorList[ErrorTable.MISSING_MISPLACED_OPERATION_MNEMONIC];
+			error = ErrorTable.MISSING_MISPLACED_OPERATION_MNEMONIC;
 			return true;
 		}
 		if (Utility.containsMisplacedLetter(line.getMnemonic())) {
-			error = ErrorTable.errorList[ErrorTable.MISSING_MISPLACED_OPERAND_FIELD];
+			error = ErrorTable.MISSING_MISPLACED_OPERAND_FIELD;
 			return true;
 		}
 		if (line.getFirstOperand().startsWith(" ")) {
-			error = ErrorTable.errorList[ErrorTable.MISSING_MISPLACED_OPERAND_FIELD];
+			error = ErrorTable.MISSING_MISPLACED_OPERAND_FIELD;
 			return true;
 		}
 		return false;
@@ -80,14 +84,14 @@ public class ErrorChecker {
 		 */
 		String label = line.getLabel();
 		if (!label.equals("") && !label.equals("(~)")) {
-			if (labelList.contains(label)) {
-				error = ErrorTable.errorList[ErrorTable.DUPLICATE_LABEL_DEFINITION];
+			if (definedLabels.get(line.getLabelId())) {
+				error = ErrorTable.DUPLICATE_LABEL_DEFINITION;
 				return true;
 			} else if (Character.isDigit(label.charAt(0))) {
-				error = ErrorTable.errorList[ErrorTable.LABEL_CANT_START_WITH_DIGIT];
+				error = ErrorTable.LABEL_CANT_START_WITH_DIGIT;
 				return true;
 			} else {
-				labelList.add(label);
+				definedLabels.set(line.getLabelId());
 				return false;
 			}
 
@@ -97,64 +101,66 @@ public class ErrorChecker {
 	}
 
 	private boolean verifyMnemonic(Line line) {
-		String mnemonic = line.getMnemonic();
+		Instruction instruction = line.getInstruction();
+		Directive directive = line.getDirective();
 		String label = line.getLabel();
-		if (mnemonic.equals("NOP"))
+		if (line.isNop())
 			return false;
 		// UNRECOGNIZED_OPERATION_CODE
-		if (!Utility.isInstruction(mnemonic) && !Utility.isDirective(mnemonic)) {
-			error = ErrorTable.errorList[ErrorTable.UNRECOGNIZED_OPERATION_CODE];
+		if (instruction == null && directive == null) {
+			error = ErrorTable.UNRECOGNIZED_OPERATION_CODE;
 			return true;
 		}
 		// WRONG_OPERATION_PREFIX - CANT_BE_FORMAT4_INSTRUCTION
-		if (Utility.isInstruction(mnemonic)) {
-			switch (InstructionTable.instructionTable.get(mnemonic).getFormat()) {
+		if (instruction != null) {
+			switch (instruction.getFormat()) {
 			case FOUR:
-				if (!mnemonic.startsWith("+")) {
-					error = ErrorTable.errorList[ErrorTable.WRONG_OPERATION_PREFIX];
+				if (!line.isExtended()) {
+					error = ErrorTable.WRONG_OPERATION_PREFIX;
 					return true;
 				}
 				break;
 			default:
-				if (mnemonic.startsWith("+")) {
-					error = ErrorTable.errorList[ErrorTable.CANT_BE_FORTMAT4_INSTRUCTION];
+				if (line.isExtended()) {
+					error = ErrorTable.CANT_BE_FORTMAT4_INSTRUCTION;
 					return true;
 				}
 			}
 		}
 		// STATEMENT_CANT_HAVE_LABEL
-		if (Utility.isDirective(mnemonic)) {
-			switch (DirectiveTable.directiveTable.get(mnemonic).getDirective()) {
-			case "END":
-			case "ORG":
-			case "BASE":
-			case "NOBASE":
-			case "LTORG":
+		if (directive != null) {
+			switch (directive.getType()) {
+			case END:
+			case ORG:
+			case BASE:
+			case NOBASE:
+			case LTORG:
 				if (!label.equals("")) {
-					error = ErrorTable.errorList[ErrorTable.STATEMENT_CANT_HAVE_LABEL];
+					error = ErrorTable.STATEMENT_CANT_HAVE_LABEL;
 					return true;
 				}
 				break;
-			case "EQU":
+			case EQU:
 				if (label.equals("") || label.equals("(~)")) {
-					error = ErrorTable.errorList[ErrorTable.STATEMENT_MUST_HAVE_LABEL];
+					error = ErrorTable.STATEMENT_MUST_HAVE_LABEL;
 					return true;
 				}
 				break;
+			default:
+				break;
 			}
 		}
-		error = ErrorTable.errorList[ErrorTable.NO_ERROR];
+		error = ErrorTable.NO_ERROR;
 		return false;
 	}
 
 	private boolean verifyOperands(Line line) {
-		String mnemonic = line.getMnemonic();
 		/*
 		 * MISSING_MISPLACED_OPERAND_FIELD UNDEFINED_SYMBOL_IN_OPERAND
 		 * NOT_HEXADECIMAL_STRING ILLEGAL_ADDRESS_FOR_REGISTER WRONG_OPERAND_TYPE
 		 * STATEMENT_CANT_HAVE_OPERAND
 		 */
-		if (Utility.isDirective(mnemonic)) {
+		if (line.getDirective() != null) {
 			return verifyDirectiveOperands(line);
 		} else {
 			return verifyInstructionOperands(line);
@@ -162,141 +168,141 @@ public class ErrorChecker {
 	}
 
 	private boolean verifyInstructionOperands(Line line) {
-		String mnemonic = line.getMnemonic();
-		if (mnemonic.equals("NOP"))
+		if (line.isNop())
 			return false;
-		if (InstructionTable.instructionTable.get(mnemonic).hasFirstOperand()) {
+		Instruction instruction = line.getInstruction();
+		if (instruction.hasFirstOperand()) {
 			if (line.getFirstOperand().equals("")) {
-				error = ErrorTable.errorList[ErrorTable.MISSING_FIRST_OPERAND];
+				error = ErrorTable.MISSING_FIRST_OPERAND;
 				return true;
 			}
-			if (InstructionTable.instructionTable.get(mnemonic).getFirstOperand() == OperandType.REGISTER) {
+			if (instruction.getFirstOperand() == OperandType.REGISTER) {
 				if (!Utility.isRegister(line.getFirstOperand())) {
-					error = ErrorTable.errorList[ErrorTable.ILLEGAL_ADDRESS_FOR_REGISTER];
+					error = ErrorTable.ILLEGAL_ADDRESS_FOR_REGISTER;
 					return true;
 				}
-			} else if (InstructionTable.instructionTable.get(mnemonic).getFirstOperand() == OperandType.VALUE) {
-				if (!Utility.isRegister(line.getFirstOperand()) && !Utility.isLabel(line.getFirstOperand())
+			} else if (instruction.getFirstOperand() == OperandType.VALUE) {
+				if (!Utility.isRegister(line.getFirstOperand()) && !Utility.isLabel(line.getFirstOperand(), session)
 						&& !isNumeric(line.getFirstOperand()) && !Utility.isLiteral(line.getFirstOperand())
-						&& !Utility.isExpression(line.getFirstOperand())) {
-					error = ErrorTable.errorList[ErrorTable.WRONG_OPERAND_TYPE];
+						&& !Utility.isExpression(line.getFirstOperand(), session)) {
+					error = ErrorTable.WRONG_OPERAND_TYPE;
 					return true;
 				}
 				if (line.getAddressingMode().equals("#")) {
-					if (!isNumeric(line.getFirstOperand()) && !Utility.isLabel(line.getFirstOperand())) {
-						error = ErrorTable.errorList[ErrorTable.WRONG_OPERAND_TYPE];
+					if (!isNumeric(line.getFirstOperand()) && !Utility.isLabel(line.getFirstOperand(), session)) {
+						error = ErrorTable.WRONG_OPERAND_TYPE;
 						return true;
 					}
 				}
 			}
 		} else {
 			if (!line.getFirstOperand().equals("")) {
-				error = ErrorTable.errorList[ErrorTable.CANT_HAVE_FIRST_OPERAND];
+				error = ErrorTable.CANT_HAVE_FIRST_OPERAND;
 				return true;
 			}
 		}
 
-		if (InstructionTable.instructionTable.get(mnemonic).hasSecondOperand()) {
+		if (instruction.hasSecondOperand()) {
 			if (line.getSecondOperand().equals("")) {
-				error = ErrorTable.errorList[ErrorTable.MISSING_SECOND_OPERAND];
+				error = ErrorTable.MISSING_SECOND_OPERAND;
 				return true;
 			}
-			if (InstructionTable.instructionTable.get(mnemonic).getSecondOperand() == OperandType.REGISTER) {
+			if (instruction.getSecondOperand() == OperandType.REGISTER) {
 				if (!Utility.isRegister(line.getSecondOperand())) {
-					error = ErrorTable.errorList[ErrorTable.ILLEGAL_ADDRESS_FOR_REGISTER];
+					error = ErrorTable.ILLEGAL_ADDRESS_FOR_REGISTER;
 					return true;
 				}
-			} else if (InstructionTable.instructionTable.get(mnemonic).getSecondOperand() == OperandType.VALUE) {
-				if (!Utility.isRegister(line.getSecondOperand()) && !Utility.isLabel(line.getSecondOperand())) {
-					error = ErrorTable.errorList[ErrorTable.WRONG_OPERAND_TYPE];
+			} else if (instruction.getSecondOperand() == OperandType.VALUE) {
+				if (!Utility.isRegister(line.getSecondOperand()) && !Utility.isLabel(line.getSecondOperand(), session)) {
+					error = ErrorTable.WRONG_OPERAND_TYPE;
 					return true;
 				}
 			}
 		} else {
 			if (!line.getSecondOperand().equals("") && !line.getSecondOperand().equalsIgnoreCase("X")) {
-				error = ErrorTable.errorList[ErrorTable.CANT_HAVE_SECOND_OPERAND];
+				error = ErrorTable.CANT_HAVE_SECOND_OPERAND;
 				return true;
 			}
 		}
-		error = ErrorTable.errorList[ErrorTable.NO_ERROR];
+		error = ErrorTable.NO_ERROR;
 		return false;
 	}
 
 	private boolean verifyDirectiveOperands(Line line) {
-		String mnemonic = line.getMnemonic();
-		switch (DirectiveTable.directiveTable.get(mnemonic).getDirective()) {
-		case "NOBASE":
-		case "LTORG":
+		switch (line.getDirective().getType()) {
+		case NOBASE:
+		case LTORG:
 			if (!line.getFirstOperand().equals("")) {
-				error = ErrorTable.errorList[ErrorTable.STATEMENT_CANT_HAVE_OPERAND];
+				error = ErrorTable.STATEMENT_CANT_HAVE_OPERAND;
 				return true;
 			}
 			break;
-		case "EQU":
+		case EQU:
 			if (!line.getAddressingMode().equals("")) {
-				error = ErrorTable.errorList[ErrorTable.WRONG_OPERAND_TYPE];
+				error = ErrorTable.WRONG_OPERAND_TYPE;
 				return true;
 			}
 			/*
 			 * if (line.getAddressingMode().equals("#")) { if
 			 * (!isNumeric(line.getFirstOperand()) &&
-			 * !Utility.isLabel(line.getFirstOperand())) { error =
+			 * !Utility.isLabel(line.getFirstOperand(), session)) { error =
 			 * ErrorTable.errorList[ErrorTable.WRONG_OPERAND_TYPE]; return true; } }
 			 */
 			if (line.getFirstOperand().equals("")) {
-				error = ErrorTable.errorList[ErrorTable.MISSING_FIRST_OPERAND];
+				error = ErrorTable.MISSING_FIRST_OPERAND;
 				return true;
 			}
-			if (!Utility.isLabel(line.getFirstOperand()) && !isNumeric(line.getFirstOperand())
-					&& !Utility.isExpression(line.getFirstOperand())) {
-				error = ErrorTable.errorList[ErrorTable.WRONG_OPERAND_TYPE];
+			if (!Utility.isLabel(line.getFirstOperand(), session) && !isNumeric(line.getFirstOperand())
+					&& !Utility.isExpression(line.getFirstOperand(), session)) {
+				error = ErrorTable.WRONG_OPERAND_TYPE;
 				return true;
 			}
 			break;
-		case "END":
-			if (!Utility.isLabel(line.getFirstOperand())) {
-				error = ErrorTable.errorList[ErrorTable.WRONG_OPERAND_TYPE];
+		case END:
+			// the operand of END is optional
+			if (!line.getFirstOperand().equals("") && !Utility.isLabel(line.getFirstOperand(), session)) {
+				error = ErrorTable.WRONG_OPERAND_TYPE;
 				return true;
 			}
 			break;
-		case "BYTE":
+		case BYTE:
 			if (line.getFirstOperand().equals("")) {
-				error = ErrorTable.errorList[ErrorTable.MISSING_MISPLACED_OPERAND_FIELD];
+				error = ErrorTable.MISSING_MISPLACED_OPERAND_FIELD;
 				return true;
 			}
 			if ((line.getFirstOperand().startsWith("X") || line.getFirstOperand().startsWith("x"))) {
 				if (line.getFirstOperand().length() < 4 || line.getFirstOperand().length() > 17) {
-					error = ErrorTable.errorList[ErrorTable.INCORRECT_OPERAND_FORMAT];
+					error = ErrorTable.INCORRECT_OPERAND_FORMAT;
 					return true;
 				}
-				if (!Utility.isHex(line.getFirstOperand().substring(2, line.getFirstOperand().length() - 1))) {
-					error = ErrorTable.errorList[ErrorTable.NOT_HEXADECIMAL_STRING];
+				if (!Utility.isHex(line.getFirstOperand(), 2, line.getFirstOperand().length() - 1)) {
+					error = ErrorTable.NOT_HEXADECIMAL_STRING;
 					return true;
 				}
 			}
 			if ((line.getFirstOperand().startsWith("C") || line.getFirstOperand().startsWith("c"))
 					&& line.getFirstOperand().length() < 4 || line.getFirstOperand().length() > 18) {
-				error = ErrorTable.errorList[ErrorTable.INCORRECT_OPERAND_FORMAT];
+				error = ErrorTable.INCORRECT_OPERAND_FORMAT;
 				return true;
 			}
 			break;
-		case "WORD":
+		case WORD:
 			if (line.getFirstOperand().equals("")) {
-				error = ErrorTable.errorList[ErrorTable.MISSING_MISPLACED_OPERAND_FIELD];
+				error = ErrorTable.MISSING_MISPLACED_OPERAND_FIELD;
 				return true;
 			}
 			if (Utility.getNumberOfDigits(line.getFirstOperand()) > 4) {
-				error = ErrorTable.errorList[ErrorTable.OPERAND_EXCEEDED_NUMBER_OF_DECIMAL_DIGITS];
+				error = ErrorTable.OPERAND_EXCEEDED_NUMBER_OF_DECIMAL_DIGITS;
 				return true;
 			}
 			break;
 		default:
 			if (line.getFirstOperand().equals("")) {
-				error = ErrorTable.errorList[ErrorTable.MISSING_MISPLACED_OPERAND_FIELD];
+				error = ErrorTable.MISSING_MISPLACED_OPERAND_FIELD;
 				return true;
 			}
 		}
-		error = ErrorTable.errorList[ErrorTable.NO_ERROR];
+		error = ErrorTable.NO_ERROR;
 		return false;
 	}
 
@@ -305,41 +311,28 @@ public class ErrorChecker {
 		case "":
 		case "@":
 		case "#":
-			error = ErrorTable.errorList[ErrorTable.NO_ERROR];
+			error = ErrorTable.NO_ERROR;
 			return false;
 		default:
-			error = ErrorTable.errorList[ErrorTable.WRONG_ADDRESSING_MODE];
+			error = ErrorTable.WRONG_ADDRESSING_MODE;
 			return true;
 		}
 	}
 
 	private boolean isNumeric(String str) {
-		try {
-			Double.parseDouble(str);
-			return true;
-		} catch (NumberFormatException e) {
-			return false;
-		}
+		return Utility.isFloatingPoint(str);
 	}
 
 	private void setLineError(Line line) {
 		line.setError(error);
 	}
 
-	public String getError() {
+	public int getError() {
 		return error;
 	}
 
-	public void setError(String error) {
+	public void setError(int error) {
 		this.error = error;
 	}
 
-	public ArrayList<String> getLabelList() {
-		return labelList;
-	}
-
-	public void setLabelList(ArrayList<String> labelList) {
-		this.labelList = labelList;
-	}
-
 }
@@ -0,0 +1,158 @@
+package model;
+
+import model.utility.Utility;
+
+/**
+ * Hand written scanner for free format source lines. One left to right pass
+ * splits a line into label, mnemonic, addressing mode, first and second
+ * operand and comment without any regex or intermediate token list.
+ *
+ * Fields are separated by spaces or tabs and everything after ';' is the
+ * comment. With three fields the first one is the label. With two fields the
+ * first one is the label only when it is not itself an operation, so both
+ * "LDA BETA" and "LOOP RSUB" are read correctly. Any field after the third is
+ * appended to the operand, which allows "A, S" or "ALPHA + 3".
+ *
+ * The lexer keeps the fields of the last line only, one instance is reused for
+ * a whole file.
+ */
+public class FreeFormatLexer {
+
+	private String label;
+	private String mnemonic;
+	private String addressingMode;
+	private String firstOperand;
+	private String secondOperand;
+	private String comment;
+
+	/**
+	 * @param line
+	 *            a source line which is not a '.' comment line.
+	 *
+	 * @return false if the line has no field at all (blank line).
+	 */
+	public boolean lex(String line) {
+		int length = line.length();
+		int commentStart = line.indexOf(';');
+		int end = commentStart < 0 ? length : commentStart;
+		comment = commentStart < 0 ? "" : line.substring(commentStart + 1);
+
+		// bounds of the first three fields, more fields extend the third
+		int start0 = -1, end0 = -1, start1 = -1, end1 = -1, start2 = -1, end2 = -1;
+		StringBuilder extra = null;
+		int fields = 0;
+		int i = 0;
+		while (i < end) {
+			char c = line.charAt(i);
+			if (c == ' ' || c == '\t') {
+				i++;
+				continue;
+			}
+			int start = i;
+			while (i < end && (c = line.charAt(i)) != ' ' && c != '\t')
+				i++;
+			switch (fields++) {
+			case 0:
+				start0 = start;
+				end0 = i;
+				break;
+			case 1:
+				start1 = start;
+				end1 = i;
+				break;
+			case 2:
+				start2 = start;
+				end2 = i;
+				break;
+			default:
+				if (extra == null)
+					extra = new StringBuilder().append(line, start2, end2);
+				extra.append(line, start, i);
+				break;
+			}
+		}
+
+		String operand;
+		switch (fields) {
+		case 0:
+			return false;
+		case 1:
+			label = "";
+			mnemonic = line.substring(start0, end0);
+			operand = "";
+			break;
+		case 2:
+			String first = line.substring(start0, end0);
+			String second = line.substring(start1, end1);
+			if (isOperation(first)) {
+				label = "";
+				mnemonic = first;
+				operand = second;
+			} else {
+				label = first;
+				mnemonic = second;
+				operand = "";
+			}
+			break;
+		default:
+			label = line.substring(start0, end0);
+			mnemonic = line.substring(start1, end1);
+			operand = extra == null ? line.substring(start2, end2) : extra.toString();
+			break;
+		}
+		splitOperand(operand);
+		return true;
+	}
+
+	/*
+	 * same rules as Utility.processOperand: the addressing mode prefix is taken
+	 * off the first operand and the second operand is upper cased.
+	 */
+	private void splitOperand(String operand) {
+		int length = operand.length();
+		int comma = operand.indexOf(',');
+		int firstEnd = comma < 0 ? length : comma;
+		int firstStart = 0;
+		addressingMode = "";
+		if (firstEnd > 0 && (operand.charAt(0) == '#' || operand.charAt(0) == '@')) {
+			addressingMode = operand.substring(0, 1);
+			firstStart = 1;
+		}
+		firstOperand = operand.substring(firstStart, firstEnd);
+		if (comma < 0) {
+			secondOperand = "";
+		} else {
+			int secondEnd = operand.indexOf(',', comma + 1);
+			secondOperand = operand.substring(comma + 1, secondEnd < 0 ? length : secondEnd).toUpperCase();
+		}
+	}
+
+	private static boolean isOperation(String field) {
+		String mnemonic = field.charAt(0) == '+' ? field.substring(1) : field;
+		return Utility.isInstruction(mnemonic) || Utility.isDirective(mnemonic);
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	public String getMnemonic() {
+		return mnemonic;
+	}
+
+	public String getAddressingMode() {
+		return addressingMode;
+	}
+
+	public String getFirstOperand() {
+		return firstOperand;
+	}
+
+	public String getSecondOperand() {
+		return secondOperand;
+	}
+
+	public String getComment() {
+		return comment;
+	}
+}
@@ -0,0 +1,82 @@
+package model;
+
+/**
+ * Builds the object code of an instruction as an int, one format at a time,
+ * with the fields packed in place by shifts and masks:
+ *
+ * format 1: opcode (8)
+ *
+ * format 2: opcode (8) r1 (4) r2 (4)
+ *
+ * format 3: opcode (6) n i x b p e displacement (12)
+ *
+ * format 4: opcode (6) n i x b p e address (20)
+ */
+public final class InstructionEncoder {
+
+	/* the n i x b p e flags, in the order they are encoded */
+	public static final int N = 0x20;
+	public static final int I = 0x10;
+	public static final int X = 0x08;
+	public static final int B = 0x04;
+	public static final int P = 0x02;
+	public static final int E = 0x01;
+
+	private InstructionEncoder() {
+		/* static methods only */
+	}
+
+	public static int formatOne(int opcode) {
+		return opcode & 0xFF;
+	}
+
+	/**
+	 * @param firstRegister
+	 *            number of the first register.
+	 * @param secondRegister
+	 *            number of the second register, 0 if there is none.
+	 */
+	public static int formatTwo(int opcode, int firstRegister, int secondRegister) {
+		return (opcode & 0xFF) << 8 | (firstRegister & 0xF) << 4 | secondRegister & 0xF;
+	}
+
+	/**
+	 * @return true if the displacement fits the 12 bits of format 3, as a
+	 *         negative PC relative one or as an unsigned one.
+	 */
+	public static boolean fitsFormatThree(int displacement) {
+		return displacement >= -0x800 && displacement <= 0xFFF;
+	}
+
+	/**
+	 * @return true if the address fits the 20 bits of format 4, as a negative
+	 *         PC relative one or as an unsigned one.
+	 */
+	public static boolean fitsFormatFour(int address) {
+		return address >= -0x80000 && address <= 0xFFFFF;
+	}
+
+	/**
+	 * @param flags
+	 *            the n i x b p e flags, e is clear.
+	 * @param displacement
+	 *            kept to its low 12 bits, a negative one in two's complement.
+	 *            One that does not fit is reported before it gets here.
+	 */
+	public static int formatThree(int opcode, int flags, int displacement) {
+		assert fitsFormatThree(displacement) : displacement;
+		return (opcode & 0xFC) << 16 | (flags & 0x3F) << 12 | displacement & 0xFFF;
+	}
+
+	/**
+	 * @param flags
+	 *            the n i x b p e flags, e is set.
+	 * @param address
+	 *            kept to its low 20 bits, a negative one in two's complement.
+	 *            One that does not fit is reported before it gets here.
+	 */
+	public static int formatFour(int opcode, int flags, int address) {
+		assert fitsFormatFour(address) : address;
+		return (opcode & 0xFC) << 24 | (flags & 0x3F) << 20 | address & 0xFFFFF;
+	}
+}
@@ -1,121 +1,223 @@
 package model;
 
+import model.enums.DirectiveType;
+import model.tables.ErrorTable;
+import model.tables.LabelIndex;
 import model.utility.Utility;
 
+/**
+ * One line of a program, a view of its row in the LineStore. Lines are made
+ * when they are asked for, so only the store is kept for the whole program.
+ */
 public class Line {
 
-	private String location;
-	private String label;
-	private String mnemonic;
-	private String addressingMode;
-	private String firstOperand;
-	private String secondOperand;
-	private String comment;
-	private String error;
-
-	public Line(String label, String mnemonic, String addressingMode, String firstOperand, String secondOperand,
-			String comment) {
-		this.label = label;
-		this.mnemonic = mnemonic;
-		this.addressingMode = addressingMode;
-		this.firstOperand = firstOperand;
-		this.secondOperand = secondOperand;
-		this.comment = comment;
+	private final LineStore store;
+	private final int row;
+
+	Line(LineStore store, int row) {
+		this.store = store;
+		this.row = row;
+	}
+
+	/**
+	 * @return the position of the line in the program.
+	 */
+	public int getIndex() {
+		return row;
+	}
+
+	/**
+	 * @return number of the line in the source, counting from 1.
+	 */
+	public int getSourceLine() {
+		return store.getSourceLine(row);
 	}
 
 	public String getLabel() {
-		return label;
+		return store.getLabel(row);
 	}
 
-	public void setLabel(String label) {
-		this.label = label;
+	/**
+	 * @return the id of the label in the session's LabelIndex, NO_LABEL if the
+	 *         line has none.
+	 */
+	public int getLabelId() {
+		return store.getLabelId(row);
+	}
+
+	public boolean hasLabel() {
+		return store.getLabelId(row) != LabelIndex.NO_LABEL;
 	}
 
 	public String getMnemonic() {
-		return mnemonic;
+		return store.getMnemonic(row);
 	}
 
-	public void setMnemonic(String mnemonic) {
-		this.mnemonic = mnemonic;
+	/**
+	 * @return the instruction of the line, null for a directive or an unknown
+	 *         mnemonic.
+	 */
+	public Instruction getInstruction() {
+		return store.getInstruction(row);
 	}
 
-	public String getAddressingMode() {
-		return addressingMode;
+	/**
+	 * @return the directive of the line, null for an instruction or an unknown
+	 *         mnemonic.
+	 */
+	public Directive getDirective() {
+		return store.getDirective(row);
+	}
+
+	public boolean isDirective(DirectiveType type) {
+		Directive directive = store.getDirective(row);
+		return directive != null && directive.getType() == type;
+	}
+
+	/**
+	 * @return true if the mnemonic has the + prefix of format 4.
+	 */
+	public boolean isExtended() {
+		return store.isExtended(row);
 	}
 
-	public void setAddressingMode(String addressingMode) {
-		this.addressingMode = addressingMode;
+	/**
+	 * @return true for a comment line, it has no operation.
+	 */
+	public boolean isNop() {
+		return store.isNop(row);
+	}
+
+	public String getAddressingMode() {
+		return store.getAddressingMode(row);
 	}
 
 	public String getFirstOperand() {
-		return firstOperand;
+		return store.getFirstOperand(row);
 	}
 
-	public void setFirstOperand(String firstOperand) {
-		this.firstOperand = firstOperand;
+	/**
+	 * @return the value of the first operand, if it is an evaluated expression.
+	 */
+	public int getValue() {
+		return store.getValue(row);
 	}
 
-	public String getSecondOperand() {
-		return secondOperand;
+	/**
+	 * keeps the value of the expression of the first operand, the operand stays
+	 * as it was read.
+	 */
+	public void setValue(int value) {
+		store.setValue(row, value);
 	}
 
-	public void setSecondOperand(String secondOperand) {
-		this.secondOperand = secondOperand;
+	/**
+	 * @return true if the first operand is an expression that was evaluated.
+	 */
+	public boolean isEvaluated() {
+		return store.isEvaluated(row);
 	}
 
-	public String getComment() {
-		return comment;
+	public String getSecondOperand() {
+		return store.getSecondOperand(row);
 	}
 
-	public void setComment(String comment) {
-		this.comment = comment;
+	public String getComment() {
+		return store.getComment(row);
 	}
 
-	public String getLocation() {
-		return location;
+	public int getLocation() {
+		return store.getLocation(row);
 	}
 
-	public void setLocation(String location) {
-		this.location = location;
+	public void setLocation(int location) {
+		store.setLocation(row, location);
 	}
 
+	/**
+	 * @return the message of the error of the line, empty if it has none.
+	 */
 	public String getError() {
-		return error;
+		return ErrorTable.errorList[store.getErrorCode(row)];
 	}
 
-	public void setError(String error) {
-		this.error = error;
+	/**
+	 * @return an index of ErrorTable.errorList, NO_ERROR if the line has none.
+	 */
+	public int getErrorCode() {
+		return store.getErrorCode(row);
 	}
 
-	@Override
-	public String toString() {
-		if (label.contains("(~)") || mnemonic.equals("NOP"))
-			return comment;
+	public boolean hasError() {
+		return store.getErrorCode(row) != ErrorTable.NO_ERROR;
+	}
+
+	/**
+	 * @param errorCode
+	 *            an index of ErrorTable.errorList.
+	 */
+	public void setError(int errorCode) {
+		store.setErrorCode(row, errorCode);
+	}
+
+	/**
+	 * appends the columns of the line as printed in the listing, each one padded
+	 * to the next multiple of 12 from where the line starts.
+	 */
+	public void appendTo(StringBuilder out) {
+		// an evaluated expression is printed as its value, a 24-bit word in hex
+		String firstOperand = isEvaluated() ? Utility.convertToHexa(getValue() & 0xFFFFFF) : getFirstOperand();
+		appendTo(out, firstOperand, getErrorCode());
+	}
+
+	/**
+	 * appends the line as it was after its verification, with the operand as it
+	 * was read and only the error the verification found.
+	 */
+	public void appendAsReadTo(StringBuilder out) {
+		appendTo(out, getFirstOperand(), store.getVerifiedErrorCode(row));
+	}
+
+	private void appendTo(StringBuilder out, String firstOperand, int errorCode) {
+		String label = getLabel();
+		if (label.contains("(~)") || isNop()) {
+			out.append(getComment());
+			return;
+		}
 		final int maxSizePerInfo = 12;
+		int start = out.length();
 		int maxSize = maxSizePerInfo;
-		String lineInfo = location;
-
-		lineInfo += Utility.getSpaces(maxSize - lineInfo.length());
+		Utility.appendHexa(out, getLocation());
+		padTo(out, start + maxSize);
 		maxSize += maxSizePerInfo;
-		lineInfo += label;
-		lineInfo += Utility.getSpaces(maxSize - lineInfo.length());
+		out.append(label);
+		padTo(out, start + maxSize);
 		maxSize += maxSizePerInfo;
-		lineInfo += mnemonic;
-		lineInfo += Utility.getSpaces(maxSize - lineInfo.length());
+		out.append(getMnemonic());
+		padTo(out, start + maxSize);
 		maxSize += maxSizePerInfo;
-		lineInfo += addressingMode;
-		lineInfo += Utility.getSpaces(maxSize - lineInfo.length());
+		out.append(getAddressingMode());
+		padTo(out, start + maxSize);
 		maxSize += maxSizePerInfo;
-		lineInfo += firstOperand;
-		lineInfo += Utility.getSpaces(maxSize - lineInfo.length());
+		out.append(firstOperand);
+		padTo(out, start + maxSize);
 		maxSize += maxSizePerInfo;
-		lineInfo += secondOperand;
-		lineInfo += Utility.getSpaces(maxSize - lineInfo.length());
-		maxSize += maxSizePerInfo;
-		lineInfo += comment;
-		if (!error.equals(""))
-			lineInfo += "\n" + error;
+		out.append(getSecondOperand());
+		padTo(out, start + maxSize);
+		out.append(getComment());
+		if (errorCode != ErrorTable.NO_ERROR)
+			out.append('\n').append(ErrorTable.errorList[errorCode]);
+	}
 
-		return lineInfo;
+	private static void padTo(StringBuilder out, int column) {
+		while (out.length() < column)
+			out.append(' ');
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder line = new StringBuilder(96);
+		appendTo(line);
+		return line.toString();
 	}
 }
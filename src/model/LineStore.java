@@ -0,0 +1,387 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import model.tables.DirectiveTable;
+import model.tables.ErrorTable;
+import model.tables.InstructionTable;
+import model.tables.LabelIndex;
+
+/**
+ * Holds every line of a program in columns of primitives, one row per line,
+ * instead of an object with a dozen fields for each of them: locations are
+ * ints, labels and mnemonics are ids, addressing modes and errors are codes.
+ * Only the operands and the comment are kept as text, equal operands share one
+ * String.
+ *
+ * A Line is a view of one row, made when it is asked for.
+ *
+ * The errors found by the verification are kept apart from the ones the later
+ * passes add, and the value of an evaluated expression is kept next to the
+ * operand it was read as, so a reassembly can start over from them and replace
+ * only the rows of the lines that were edited.
+ */
+public class LineStore implements Iterable<Line> {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	// addressing mode codes
+	private static final byte DIRECT = 0;
+	private static final byte IMMEDIATE = 1;
+	private static final byte INDIRECT = 2;
+	private static final byte UNKNOWN_MODE = 3;
+
+	// flags of a row
+	// the label of the row is "(~)", it is a comment line
+	private static final byte COMMENT_LABEL = 1;
+	// the first operand is an expression, its value is in the values column
+	private static final byte EVALUATED = 2;
+
+	private final LabelIndex labelIndex;
+	private int size = 0;
+
+	private int[] sourceLines = new int[INITIAL_CAPACITY];
+	private int[] locations = new int[INITIAL_CAPACITY];
+	private int[] labelIds = new int[INITIAL_CAPACITY];
+	private int[] mnemonicIds = new int[INITIAL_CAPACITY];
+	private byte[] addressingModes = new byte[INITIAL_CAPACITY];
+	private byte[] errors = new byte[INITIAL_CAPACITY];
+	private byte[] verifiedErrors = new byte[INITIAL_CAPACITY];
+	private byte[] flags = new byte[INITIAL_CAPACITY];
+	private String[] firstOperands = new String[INITIAL_CAPACITY];
+	private int[] values = new int[INITIAL_CAPACITY];
+	private String[] secondOperands = new String[INITIAL_CAPACITY];
+	private String[] comments = new String[INITIAL_CAPACITY];
+
+	// every distinct mnemonic is resolved once, rows keep its id
+	private final HashMap<String, Integer> mnemonicIdsByText = new HashMap<>();
+	private final ArrayList<Mnemonic> mnemonics = new ArrayList<>();
+	private final HashMap<String, String> operands = new HashMap<>();
+
+	private static class Mnemonic {
+		final String name;
+		final Instruction instruction;
+		final Directive directive;
+		final boolean extended;
+		final boolean nop;
+
+		Mnemonic(String name) {
+			this.name = name;
+			this.instruction = InstructionTable.instructionTable.get(name);
+			this.directive = DirectiveTable.directiveTable.get(name);
+			this.extended = name.startsWith("+");
+			this.nop = name.equals("NOP");
+		}
+	}
+
+	/**
+	 * @param labelIndex
+	 *            gives the labels of the rows their ids.
+	 */
+	public LineStore(LabelIndex labelIndex) {
+		this.labelIndex = labelIndex;
+	}
+
+	/**
+	 * appends a row for a line of the source, its location is 0 until it is set.
+	 *
+	 * @param sourceLine
+	 *            number of the line in the source, counting from 1.
+	 *
+	 * @return the new line.
+	 */
+	public Line add(int sourceLine, String label, String mnemonic, String addressingMode, String firstOperand,
+			String secondOperand, String comment) {
+		if (size == locations.length)
+			grow();
+		int row = size++;
+		set(row, sourceLine, label, mnemonicId(mnemonic), addressingModeCode(addressingMode), firstOperand,
+				secondOperand, comment);
+		return new Line(this, row);
+	}
+
+	/**
+	 * replaces the rows from..to by copies of the rows of another store, as after
+	 * an edit of the lines they were read from.
+	 *
+	 * @param rows
+	 *            the rows of the edited lines, numbered as in the whole source.
+	 * @param shift
+	 *            number of source lines the lines after the edit moved by.
+	 */
+	public void replace(int from, int to, LineStore rows, int shift) {
+		int count = rows.size;
+		int newSize = size - (to - from) + count;
+		while (newSize > locations.length)
+			grow();
+		int following = size - to;
+		if (following > 0 && from + count != to) {
+			move(sourceLines, to, from + count, following);
+			move(locations, to, from + count, following);
+			move(labelIds, to, from + count, following);
+			move(mnemonicIds, to, from + count, following);
+			move(addressingModes, to, from + count, following);
+			move(errors, to, from + count, following);
+			move(verifiedErrors, to, from + count, following);
+			move(flags, to, from + count, following);
+			move(firstOperands, to, from + count, following);
+			move(values, to, from + count, following);
+			move(secondOperands, to, from + count, following);
+			move(comments, to, from + count, following);
+		}
+		for (int i = newSize; i < size; i++)
+			firstOperands[i] = secondOperands[i] = comments[i] = null;
+		size = newSize;
+		for (int i = 0; i < count; i++)
+			set(from + i, rows.sourceLines[i], rows.getLabel(i), mnemonicId(rows.getMnemonic(i)),
+					rows.addressingModes[i], rows.getFirstOperand(i), rows.secondOperands[i], rows.comments[i]);
+		if (shift != 0)
+			for (int row = from + count; row < size; row++)
+				sourceLines[row] += shift;
+	}
+
+	/**
+	 * @return the first row read from the given line of the source or from one
+	 *         after it, size() if there is none.
+	 */
+	public int rowOfSourceLine(int sourceLine) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (sourceLines[middle] < sourceLine)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * keeps the errors of the rows from..to as the ones found by their
+	 * verification.
+	 */
+	public void markVerified(int from, int to) {
+		System.arraycopy(errors, from, verifiedErrors, from, to - from);
+	}
+
+	/**
+	 * clears the errors found after the verification of every row.
+	 */
+	public void restoreVerifiedErrors() {
+		System.arraycopy(verifiedErrors, 0, errors, 0, size);
+	}
+
+	/**
+	 * forgets the values of the expressions evaluated in every row.
+	 */
+	public void clearValues() {
+		for (int row = 0; row < size; row++)
+			flags[row] &= ~EVALUATED;
+	}
+
+	public Line get(int row) {
+		if (row < 0 || row >= size)
+			throw new IndexOutOfBoundsException("Line: " + row + ", Size: " + size);
+		return new Line(this, row);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public Iterator<Line> iterator() {
+		return new Iterator<Line>() {
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public Line next() {
+				if (next >= size)
+					throw new NoSuchElementException();
+				return new Line(LineStore.this, next++);
+			}
+		};
+	}
+
+	private void set(int row, int sourceLine, String label, int mnemonicId, byte addressingMode,
+			String firstOperand, String secondOperand, String comment) {
+		sourceLines[row] = sourceLine;
+		locations[row] = 0;
+		flags[row] = 0;
+		if (label.equals("(~)")) {
+			flags[row] = COMMENT_LABEL;
+			labelIds[row] = LabelIndex.NO_LABEL;
+		} else if (label.equals("")) {
+			labelIds[row] = LabelIndex.NO_LABEL;
+		} else {
+			labelIds[row] = labelIndex.intern(label);
+		}
+		mnemonicIds[row] = mnemonicId;
+		addressingModes[row] = addressingMode;
+		errors[row] = ErrorTable.NO_ERROR;
+		verifiedErrors[row] = ErrorTable.NO_ERROR;
+		firstOperands[row] = share(firstOperand);
+		values[row] = 0;
+		secondOperands[row] = share(secondOperand);
+		comments[row] = comment;
+	}
+
+	private static void move(Object column, int from, int to, int length) {
+		System.arraycopy(column, from, column, to, length);
+	}
+
+	private void grow() {
+		int capacity = locations.length * 2;
+		sourceLines = Arrays.copyOf(sourceLines, capacity);
+		locations = Arrays.copyOf(locations, capacity);
+		labelIds = Arrays.copyOf(labelIds, capacity);
+		mnemonicIds = Arrays.copyOf(mnemonicIds, capacity);
+		addressingModes = Arrays.copyOf(addressingModes, capacity);
+		errors = Arrays.copyOf(errors, capacity);
+		verifiedErrors = Arrays.copyOf(verifiedErrors, capacity);
+		flags = Arrays.copyOf(flags, capacity);
+		firstOperands = Arrays.copyOf(firstOperands, capacity);
+		values = Arrays.copyOf(values, capacity);
+		secondOperands = Arrays.copyOf(secondOperands, capacity);
+		comments = Arrays.copyOf(comments, capacity);
+	}
+
+	private int mnemonicId(String text) {
+		Integer id = mnemonicIdsByText.get(text);
+		if (id != null)
+			return id;
+		int newId = mnemonics.size();
+		mnemonics.add(new Mnemonic(text.toUpperCase()));
+		mnemonicIdsByText.put(text, newId);
+		return newId;
+	}
+
+	private String share(String operand) {
+		if (operand.isEmpty())
+			return "";
+		String shared = operands.putIfAbsent(operand, operand);
+		return shared == null ? operand : shared;
+	}
+
+	private static byte addressingModeCode(String addressingMode) {
+		switch (addressingMode) {
+		case "":
+			return DIRECT;
+		case "#":
+			return IMMEDIATE;
+		case "@":
+			return INDIRECT;
+		default:
+			return UNKNOWN_MODE;
+		}
+	}
+
+	/* columns of one row, read and written through its Line */
+
+	int getSourceLine(int row) {
+		return sourceLines[row];
+	}
+
+	int getLocation(int row) {
+		return locations[row];
+	}
+
+	void setLocation(int row, int location) {
+		locations[row] = location;
+	}
+
+	String getLabel(int row) {
+		if ((flags[row] & COMMENT_LABEL) != 0)
+			return "(~)";
+		int id = labelIds[row];
+		return id == LabelIndex.NO_LABEL ? "" : labelIndex.getName(id);
+	}
+
+	int getLabelId(int row) {
+		return labelIds[row];
+	}
+
+	String getMnemonic(int row) {
+		return mnemonics.get(mnemonicIds[row]).name;
+	}
+
+	Instruction getInstruction(int row) {
+		return mnemonics.get(mnemonicIds[row]).instruction;
+	}
+
+	Directive getDirective(int row) {
+		return mnemonics.get(mnemonicIds[row]).directive;
+	}
+
+	boolean isExtended(int row) {
+		return mnemonics.get(mnemonicIds[row]).extended;
+	}
+
+	boolean isNop(int row) {
+		return mnemonics.get(mnemonicIds[row]).nop;
+	}
+
+	String getAddressingMode(int row) {
+		switch (addressingModes[row]) {
+		case DIRECT:
+			return "";
+		case IMMEDIATE:
+			return "#";
+		case INDIRECT:
+			return "@";
+		default:
+			return "?";
+		}
+	}
+
+	String getFirstOperand(int row) {
+		return firstOperands[row];
+	}
+
+	int getValue(int row) {
+		return values[row];
+	}
+
+	void setValue(int row, int value) {
+		values[row] = value;
+		flags[row] |= EVALUATED;
+	}
+
+	boolean isEvaluated(int row) {
+		return (flags[row] & EVALUATED) != 0;
+	}
+
+	String getSecondOperand(int row) {
+		return secondOperands[row];
+	}
+
+	String getComment(int row) {
+		return comments[row];
+	}
+
+	int getErrorCode(int row) {
+		return errors[row];
+	}
+
+	void setErrorCode(int row, int code) {
+		errors[row] = (byte) code;
+	}
+
+	int getVerifiedErrorCode(int row) {
+		return verifiedErrors[row];
+	}
+}
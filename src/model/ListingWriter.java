@@ -0,0 +1,132 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+import model.utility.Utility;
+
+/**
+ * Writes the listing file one row at a time: the source lines after pass one
+ * and the object code of each line after pass two. Every row is formatted in
+ * one reused buffer and handed to the writer, so the listing is never held as
+ * a whole.
+ */
+public class ListingWriter implements Closeable {
+
+	private static final String LINE_SEPARATOR = "-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-_-";
+	private static final String START_PASS_ONE = "\n-_-_-_-_-_-_-_-_-_- S   T   A   R   T      O   F      P   A   S   S   1 -_-_-_-_-_-_-_-_-_-_-";
+	private static final String START_PASS_TWO = "\n-_-_-_-_-_-_-_-_-_- S   T   A   R   T      O   F      P   A   S   S   2 -_-_-_-_-_-_-_-_-_-_-\n\n";
+	private static final String PASS_ONE_TABLE_FORM = "LINES" + Utility.getSpaces(7) + "ADDRESS"
+			+ Utility.getSpaces(5) + "LABEL" + Utility.getSpaces(7) + "MNEMONIC" + Utility.getSpaces(4) + "ADDR_MODE"
+			+ Utility.getSpaces(3) + "OPERAND1" + Utility.getSpaces(4) + "OPERAND2" + Utility.getSpaces(4)
+			+ "COMMENTS\n";
+	private static final String PASS_TWO_TABLE_FORM = "LINES" + Utility.getSpaces(7) + "Code" + Utility.getSpaces(5)
+			+ " LC" + Utility.getSpaces(7) + "Source Statement\n\n";
+
+	private final Writer out;
+	private final StringBuilder row = new StringBuilder(160);
+	private char[] chars = new char[160];
+
+	/**
+	 * @param out
+	 *            receives the listing, it should be buffered.
+	 */
+	public ListingWriter(Writer out) {
+		this.out = out;
+	}
+
+	public void writePassOneHeader() throws IOException {
+		out.write(LINE_SEPARATOR);
+		out.write(START_PASS_ONE);
+		out.write("\n\n");
+		out.write(PASS_ONE_TABLE_FORM);
+	}
+
+	/**
+	 * writes the line as it was read and verified, before the later passes.
+	 * 
+	 * @param number
+	 *            position of the line in the program.
+	 */
+	public void writeSourceRow(int number, Line line) throws IOException {
+		row.setLength(0);
+		row.append(number);
+		pad(12 - row.length());
+		line.appendAsReadTo(row);
+		row.append('\n');
+		flushRow();
+	}
+
+	public void writePassTwoHeader() throws IOException {
+		out.write(LINE_SEPARATOR);
+		out.write(START_PASS_TWO);
+		out.write(PASS_TWO_TABLE_FORM);
+	}
+
+	/**
+	 * @param number
+	 *            position of the line in the program.
+	 * @param code
+	 *            object code printed for the line, may be empty.
+	 */
+	public void writeCodeRow(int number, Line line, EncodedLine encoded, String code) throws IOException {
+		row.setLength(0);
+		// the code column is one space to the left under a flags line
+		int numberLength = digits(number);
+		int spacesBeforeCode = 14 - 2 * numberLength;
+		if (encoded.hasFlags()) {
+			appendFlags(encoded.getFlags());
+			spacesBeforeCode--;
+		}
+		row.append(number);
+		pad(spacesBeforeCode);
+		row.append(code);
+		pad(6 - code.length());
+		pad(16 - numberLength - spacesBeforeCode);
+		line.appendTo(row);
+		row.append('\n');
+		flushRow();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+	private void appendFlags(int flags) {
+		row.append('\n');
+		pad(40);
+		appendFlag("n=", flags, InstructionEncoder.N);
+		appendFlag("i=", flags, InstructionEncoder.I);
+		appendFlag("x=", flags, InstructionEncoder.X);
+		appendFlag("b=", flags, InstructionEncoder.B);
+		appendFlag("p=", flags, InstructionEncoder.P);
+		row.append("e=").append((flags & InstructionEncoder.E) != 0 ? '1' : '0').append('\n');
+	}
+
+	private void appendFlag(String name, int flags, int flag) {
+		row.append(name).append((flags & flag) != 0 ? '1' : '0');
+		pad(4);
+	}
+
+	private void pad(int count) {
+		for (int i = 0; i < count; i++)
+			row.append(' ');
+	}
+
+	private static int digits(int number) {
+		int digits = 1;
+		for (int rest = number / 10; rest != 0; rest /= 10)
+			digits++;
+		return digits;
+	}
+
+	private void flushRow() throws IOException {
+		int length = row.length();
+		if (chars.length < length)
+			chars = new char[Math.max(length, chars.length * 2)];
+		row.getChars(0, length, chars, 0);
+		out.write(chars, 0, length);
+	}
+}
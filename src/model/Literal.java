@@ -1,12 +1,14 @@
 package model;
 
+import model.utility.Utility;
+
 public class Literal {
 
 	private String type;
 	private String operand;
-	private String address;
+	private int address;
 
-	public Literal(String operand, String address) {
+	public Literal(String operand, int address) {
 
 		this.type = "" + operand.charAt(1);
 		this.type = this.type.toUpperCase();
@@ -22,10 +24,10 @@ public class Literal {
 			length = 3;
 			break;
 		case "C":
-			length = operand.length() - 3;
+			length = operand.length() - 4; // =C'EOF' -> EOF -> 3 bytes
 			break;
 		case "X":
-			length = (int) Math.ceil(((double) operand.length()) / 2);
+			length = (int) Math.ceil(((double) operand.length() - 4) / 2);
 			break;
 		}
 		return length;
@@ -50,7 +52,7 @@ public class Literal {
 
 	@Override
 	public String toString() {
-		return type + "\t" + operand + "\t" + address + "\n";
+		return type + "\t" + operand + "\t" + Utility.convertToHexa(address) + "\n";
 	}
 
 	public String getType() {
@@ -69,11 +71,11 @@ public class Literal {
 		this.operand = operand;
 	}
 
-	public String getAddress() {
+	public int getAddress() {
 		return address;
 	}
 
-	public void setAddress(String address) {
+	public void setAddress(int address) {
 		this.address = address;
 	}
 
@@ -1,27 +1,26 @@
 package model;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
 import controller.Controller;
-import model.tables.DirectiveTable;
-import model.tables.InstructionTable;
+import model.tables.LabelIndex;
 import model.utility.Utility;
 
 public class ProgramCounter {
 
-	private static ProgramCounter instance = null;
+	public static final int NO_LOCATION = Integer.MIN_VALUE;
 
-	private ProgramCounter() {
-	}
+	private final AssemblySession session;
 
-	public static ProgramCounter getInstance() {
-		if (instance == null)
-			instance = new ProgramCounter();
-		return instance;
+	public ProgramCounter(AssemblySession session) {
+		this.session = session;
 	}
 
 	private int locationCounter = 0;
 	private int literalsStartIndex = 0;
+	// location of each label by label id, filled as locations are assigned
+	private int[] labelLocations = newLabelLocations(16);
+	private Line endLine;
 
 	public int getProgramCounter() {
 		return locationCounter;
@@ -42,75 +41,112 @@ public class ProgramCounter {
 	public void resetAddresses() {
 		locationCounter = 0;
 		literalsStartIndex = 0;
+		labelLocations = newLabelLocations(16);
+		endLine = null;
+	}
+
+	/**
+	 * @param label
+	 *            a label of a line that already has its location.
+	 *
+	 * @return the location of the last line defining the label, NO_LOCATION if
+	 *         there is none.
+	 */
+	public int getLabelLocation(String label) {
+		int id = session.getLabelIndex().getId(label);
+		if (id == LabelIndex.NO_LABEL || id >= labelLocations.length)
+			return NO_LOCATION;
+		return labelLocations[id];
 	}
 
-	public void updateCounters(Line line, ArrayList<Line> lineList) {
-		String mnemonic = line.getMnemonic();
-		String hexaValue = Utility.convertToHexa(locationCounter);
-		line.setLocation(hexaValue);
-		if (mnemonic == null || mnemonic.equals(""))
+	/**
+	 * @return the first END statement counted so far, null if there is none.
+	 */
+	public Line getEndLine() {
+		return endLine;
+	}
+
+	private void setLocation(Line line, int location) {
+		line.setLocation(location);
+		int id = line.getLabelId();
+		if (id == LabelIndex.NO_LABEL)
 			return;
-		if (mnemonic.equals("Start".toUpperCase())) {
-			locationCounter = Utility.hexToDecimal(line.getFirstOperand());
-			hexaValue = Utility.convertToHexa(locationCounter);
-			line.setLocation(hexaValue);
-		}
+		if (id >= labelLocations.length)
+			labelLocations = growLabelLocations(labelLocations, id + 1);
+		labelLocations[id] = location;
+	}
+
+	private static int[] newLabelLocations(int length) {
+		int[] locations = new int[length];
+		Arrays.fill(locations, NO_LOCATION);
+		return locations;
+	}
 
-		if (mnemonic.equals("Org".toUpperCase())) {
-			if (Utility.isNumeric(line.getFirstOperand())) {
+	private static int[] growLabelLocations(int[] locations, int minLength) {
+		int[] grown = newLabelLocations(Math.max(minLength, locations.length * 2));
+		System.arraycopy(locations, 0, grown, 0, locations.length);
+		return grown;
+	}
+
+	public void updateCounters(Line line, LineStore lineList) {
+		setLocation(line, locationCounter);
+		Directive directive = line.getDirective();
+		Instruction instruction = line.getInstruction();
+		if (directive != null) {
+			switch (directive.getType()) {
+			case START:
 				locationCounter = Utility.hexToDecimal(line.getFirstOperand());
-			} else {
-				for (Line line2 : lineList) {
-					if (line2.getLabel().equals(line.getFirstOperand())) {
-						locationCounter = Utility.hexToDecimal((line2.getLocation()));
-					}
+				setLocation(line, locationCounter);
+				break;
+			case END:
+				if (endLine == null)
+					endLine = line;
+				break;
+			case ORG:
+				// as read, an expression is only evaluated once every location is given
+				String origin = line.getFirstOperand();
+				if (Utility.isNumeric(origin)) {
+					locationCounter = Utility.hexToDecimal(origin);
+				} else {
+					// labels further down have no location yet, as in a scan of the lines so far
+					int location = getLabelLocation(origin);
+					if (location != NO_LOCATION)
+						locationCounter = location;
 				}
-			}
-		}
-		if (mnemonic.equalsIgnoreCase("LTORG")) {
-			Controller.fillLiteralsTable(lineList);
-		}
-
-		if (Utility.isDirective(mnemonic)) {
-			switch (DirectiveTable.directiveTable.get(mnemonic).getFormat()) {
-			case THREE:
+				break;
+			case LTORG:
+				// only the lines read so far, none of them is verified yet
+				Controller.fillLiteralsTable(lineList, line.getIndex() + 1, false, session);
+				break;
+			case WORD:
 				locationCounter += 3;
-			case VARIABLE:
-				// noinspection IfCanBeSwitch
-				if (mnemonic.toUpperCase().equals("RESB")) {
-					locationCounter += Integer.parseInt(line.getFirstOperand());
-				} else if (mnemonic.toUpperCase().equals("RESW")) {
-					locationCounter += 3 * Integer.parseInt(line.getFirstOperand());
-				} else if (mnemonic.toUpperCase().equals("BYTE")) {
-					String firstOperand = line.getFirstOperand().substring(0, 1).toUpperCase();
-					firstOperand = firstOperand + line.getFirstOperand().substring(1);
-					switch (firstOperand.charAt(0)) {
-					case 'C':
-						locationCounter += (firstOperand.length() - 3); // C'EOF' -> EOF -> 3 bytes
-						break;
-					case 'X':
-						locationCounter += Math.ceil((float) (firstOperand.length() - 3) / 2);
-						break;
-					default:
-						// TODO: check that the value doesn't cause an overflow for a byte
-						/*
-						 * if (Utility.isNumeric(firstOperand)) { int value = (int)
-						 * Long.parseLong(firstOperand); if (value >= -128 && value <= 127) {
-						 * locationCounter += 1; } else {
-						 * 
-						 * } } else {
-						 * 
-						 * }
-						 */ locationCounter += 1;
-						break;
-					}
+				break;
+			case RESB:
+				locationCounter += Integer.parseInt(line.getFirstOperand());
+				break;
+			case RESW:
+				locationCounter += 3 * Integer.parseInt(line.getFirstOperand());
+				break;
+			case BYTE:
+				String firstOperand = line.getFirstOperand();
+				switch (Character.toUpperCase(firstOperand.charAt(0))) {
+				case 'C':
+					locationCounter += (firstOperand.length() - 3); // C'EOF' -> EOF -> 3 bytes
+					break;
+				case 'X':
+					locationCounter += Math.ceil((float) (firstOperand.length() - 3) / 2);
+					break;
+				default:
+					// TODO: check that the value doesn't cause an overflow for a byte
+					locationCounter += 1;
+					break;
 				}
 				break;
 			default:
 				break;
 			}
-		} else if (Utility.isInstruction(mnemonic)) {
-			switch (InstructionTable.instructionTable.get(mnemonic).getFormat()) {
+		} else if (instruction != null) {
+			switch (instruction.getFormat()) {
 			case ONE:
 				locationCounter += 1;
 				break;
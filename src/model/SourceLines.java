@@ -0,0 +1,187 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * The text of a source and where each of its lines starts, split as
+ * BufferedReader.readLine splits them. An edited version of the text is
+ * compared with it one character at a time, so only the lines between the
+ * parts both versions share have to be read again.
+ */
+public class SourceLines {
+
+	// characters compared at once while looking for an edit
+	private static final int BLOCK = 256;
+
+	private final String text;
+	// offset of the first character of each line, then the length of the text
+	private final int[] starts;
+	private final int count;
+
+	// the lines that changed from the version this one was edited from
+	private final int editStart;
+	private final int replacedEnd;
+	private final int editEnd;
+
+	public SourceLines(String text) {
+		this.text = text;
+		int[] found = new int[16];
+		int lines = 0;
+		for (int start = 0; start < text.length(); start = nextLine(text, start)) {
+			if (lines + 1 >= found.length)
+				found = Arrays.copyOf(found, found.length * 2);
+			found[lines++] = start;
+		}
+		found[lines] = text.length();
+		this.starts = found;
+		this.count = lines;
+		this.editStart = 0;
+		this.replacedEnd = 0;
+		this.editEnd = lines;
+	}
+
+	private SourceLines(String text, int[] starts, int count, int editStart, int replacedEnd, int editEnd) {
+		this.text = text;
+		this.starts = starts;
+		this.count = count;
+		this.editStart = editStart;
+		this.replacedEnd = replacedEnd;
+		this.editEnd = editEnd;
+	}
+
+	/**
+	 * @param edited
+	 *            the whole text after an edit.
+	 *
+	 * @return the lines of the edited text, the lines before and after the edit
+	 *         are taken from this version.
+	 */
+	public SourceLines edit(String edited) {
+		int oldLength = text.length();
+		int newLength = edited.length();
+		int limit = Math.min(oldLength, newLength);
+		// whole blocks first, the characters of the block that differs one at a time
+		int prefix = 0;
+		while (prefix + BLOCK <= limit && text.regionMatches(prefix, edited, prefix, BLOCK))
+			prefix += BLOCK;
+		while (prefix < limit && text.charAt(prefix) == edited.charAt(prefix))
+			prefix++;
+		int suffix = 0;
+		while (suffix + BLOCK <= limit - prefix
+				&& text.regionMatches(oldLength - suffix - BLOCK, edited, newLength - suffix - BLOCK, BLOCK))
+			suffix += BLOCK;
+		while (suffix < limit - prefix
+				&& text.charAt(oldLength - 1 - suffix) == edited.charAt(newLength - 1 - suffix))
+			suffix++;
+
+		// after a \n both versions start a line, a \r may be half of a \r\n
+		int first = prefix == 0 ? 0 : lineOf(text.charAt(prefix - 1) == '\n' ? prefix : prefix - 1);
+		int after = count;
+		while (after > first && isShared(starts[after - 1], oldLength - suffix, edited, newLength - suffix))
+			after--;
+
+		int shift = newLength - oldLength;
+		int start = starts[first];
+		int end = after < count ? starts[after] + shift : newLength;
+		int[] found = new int[first + 16 + count - after];
+		System.arraycopy(starts, 0, found, 0, first);
+		int lines = first;
+		for (int line = start; line < end; line = nextLine(edited, line)) {
+			if (lines + 1 + count - after >= found.length)
+				found = Arrays.copyOf(found, found.length * 2);
+			found[lines++] = line;
+		}
+		int editedEnd = lines;
+		for (int line = after; line <= count; line++)
+			found[lines++] = starts[line] + shift;
+		return new SourceLines(edited, found, editedEnd + count - after, first, after, editedEnd);
+	}
+
+	/**
+	 * @return the line holding the character at the offset, size() at the end
+	 *         of the text.
+	 */
+	private int lineOf(int offset) {
+		int line = Arrays.binarySearch(starts, 0, count + 1, offset);
+		return line >= 0 ? line : -line - 2;
+	}
+
+	/**
+	 * @param start
+	 *            the start of a line of this version.
+	 * @param common
+	 *            the start of the text this version ends with, as the edited one.
+	 * @param editedCommon
+	 *            the start of that text in the edited version.
+	 *
+	 * @return true if the line starts in the same place of the text both versions
+	 *         end with.
+	 */
+	private boolean isShared(int start, int common, String edited, int editedCommon) {
+		if (start > common)
+			return true;
+		// the character before it decides, unless it was edited too
+		return start == common && start > 0 && editedCommon > 0 && text.charAt(start - 1) == '\n'
+				&& edited.charAt(editedCommon - 1) == '\n';
+	}
+
+	/*
+	 * the start of the line after the one starting at start, past its \n, \r or
+	 * \r\n.
+	 */
+	private static int nextLine(String text, int start) {
+		int length = text.length();
+		for (int i = start; i < length; i++) {
+			char c = text.charAt(i);
+			if (c == '\n')
+				return i + 1;
+			if (c == '\r')
+				return i + 1 < length && text.charAt(i + 1) == '\n' ? i + 2 : i + 1;
+		}
+		return length;
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * @return the lines from..to, without their line terminators.
+	 */
+	public String[] getLines(int from, int to) {
+		String[] lines = new String[to - from];
+		for (int line = from; line < to; line++) {
+			int end = starts[line];
+			while (end < starts[line + 1] && text.charAt(end) != '\n' && text.charAt(end) != '\r')
+				end++;
+			lines[line - from] = text.substring(starts[line], end);
+		}
+		return lines;
+	}
+
+	/**
+	 * @return index of the first line that is not as it was before the edit.
+	 */
+	public int getEditStart() {
+		return editStart;
+	}
+
+	/**
+	 * @return index after the last line the edit replaced, in the version before
+	 *         it.
+	 */
+	public int getReplacedEnd() {
+		return replacedEnd;
+	}
+
+	/**
+	 * @return index after the last line the edit put in, in this version.
+	 */
+	public int getEditEnd() {
+		return editEnd;
+	}
+}
@@ -5,11 +5,14 @@ import model.utility.Utility;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
 
 public class SourceReader {
 
-	private static SourceReader instance = null;
+	// holds no state so a single instance is shared by every assembly session
+	private static final SourceReader instance = new SourceReader();
 
 	private SourceReader() {
 		/* Private constructor for Singleton */
@@ -22,8 +25,6 @@ public class SourceReader {
 	 * @return the only single instance from this class.
 	 */
 	public static SourceReader getInstance() {
-		if (instance == null)
-			instance = new SourceReader();
 		return instance;
 	}
 
@@ -52,132 +53,248 @@ public class SourceReader {
 	}
 
 	/**
-	 * @param fileInfo
-	 *            the lines read from file usually after using this.readFile()
+	 * @param filePath
+	 *            the source file path.
 	 * @param isRestricted
 	 *            to determine should i use restricted or free format mode in
 	 *            reading the source code.
+	 * @param session
+	 *            the assembly run the parsed lines belong to.
 	 *
-	 * @return array list which each index contains the same line order from the
-	 *         file.
+	 * @return command info holding a Line for each source line.
 	 */
-	public CommandInfo processFile(ArrayList<String> fileInfo, boolean isRestricted) {
-		if (isRestricted) {
-			return processRestricted(fileInfo);
+	public CommandInfo processFile(String filePath, boolean isRestricted, AssemblySession session)
+			throws IOException {
+		try (BufferedReader br = new BufferedReader(new FileReader(new File(filePath)))) {
+			return processFile(br, isRestricted, session);
 		}
-		return processFreeFormat(fileInfo);
 	}
 
+	/**
+	 * reads the source one line at a time, each line becomes a Line right away so
+	 * the source text itself is never held in memory.
+	 * 
+	 * @param source
+	 *            the source code, it is not closed.
+	 * @param isRestricted
+	 *            to determine should i use restricted or free format mode in
+	 *            reading the source code.
+	 * @param session
+	 *            the assembly run the parsed lines belong to.
+	 *
+	 * @return command info holding a Line for each source line.
+	 */
+	public CommandInfo processFile(Reader source, boolean isRestricted, AssemblySession session)
+			throws IOException {
+		BufferedReader br = source instanceof BufferedReader ? (BufferedReader) source : new BufferedReader(source);
+		CommandInfo CI = new CommandInfo(session);
+		FreeFormatLexer lexer = isRestricted ? null : new FreeFormatLexer();
+		String currentLine;
+		int number = 0;
+		while ((currentLine = br.readLine()) != null)
+			processLine(currentLine, ++number, lexer, CI);
+		CI.endOfSource();
+		return CI;
+	}
+
+	/**
+	 * reads some of the lines of a source, as they were edited. The lines are not
+	 * verified, the labels they use may be defined anywhere in the source.
+	 * 
+	 * @param lines
+	 *            consecutive lines of the source.
+	 * @param firstLine
+	 *            number of the first of them in the source, counting from 1.
+	 * @param isRestricted
+	 *            to determine should i use restricted or free format mode in
+	 *            reading the source code.
+	 * @param session
+	 *            a session for these lines only, their locations are counted in
+	 *            it.
+	 *
+	 * @return command info holding a Line for each of the lines, numbered as in
+	 *         the whole source.
+	 */
+	public CommandInfo processLines(String[] lines, int firstLine, boolean isRestricted, AssemblySession session) {
+		CommandInfo CI = new CommandInfo(session);
+		FreeFormatLexer lexer = isRestricted ? null : new FreeFormatLexer();
+		for (int i = 0; i < lines.length; i++)
+			processLine(lines[i], firstLine + i, lexer, CI);
+		return CI;
+	}
+
+	/**
+	 * @param lexer
+	 *            null in restricted mode.
+	 */
+	private void processLine(String currentLine, int number, FreeFormatLexer lexer, CommandInfo CI) {
+		CI.addSourceLine(number);
+		if (lexer == null)
+			processRestricted(currentLine, CI);
+		else
+			processFreeFormat(currentLine, lexer, CI);
+	}
+
+	/* column ranges of the restricted format, a line is read as if padded to 67 */
+	private static final int LABEL_START = 0;
+	private static final int MNEMONIC_START = 9;
+	private static final int OPERAND_START = 17;
+	private static final int COMMENT_START = 35;
+	private static final int LINE_END = 67;
+
 	/**
 	 * usually make a sub strings from each line and assign them accordingly to the
 	 * suitable instruction info. (using zero indexing) 0-> 7 label 8 empty/space
 	 * 9-> 15 mnemonic 16 empty/space 17->34 operand 35->65 comment
 	 * 
-	 * @param fileInfo
-	 *            the lines read from file usually after using this.readFile()
-	 *
-	 * @return command info which have arraylists with correct instructions
-	 *         information later converted to Line.
+	 * fields are read in place from the original line, columns past its end count
+	 * as spaces so the line is never padded or copied.
+	 * 
+	 * @param currentLine
+	 *            one line of the source.
+	 * @param CI
+	 *            receives the fields of the line.
 	 */
-	private CommandInfo processRestricted(ArrayList<String> fileInfo) {
-		CommandInfo CI = new CommandInfo();
-		String Spaces = "";
+	private void processRestricted(String currentLine, CommandInfo CI) {
+		if (isBlank(currentLine))
+			return;
 		/*
-		 * Temporary variable that holds 67 spaces to check if line have 1 space at
-		 * least as anyline that has less than 67 chars will be filled with spaces
+		 * this line is prefixed with comment so should be avoided however it had to add
+		 * defaults to CI so it can be processed normally and so comment is printed not
+		 * ignored
 		 */
-		while (Spaces.length() < 67)
-			Spaces += " ";
-
-		for (String currentLine : fileInfo) {
-
-			while (currentLine.length() < 67)
-				currentLine += " ";
-			if (currentLine.equals(Spaces))
-				continue;
-			CI.addWholeInstruction(currentLine);
-			/*
-			 * this line is prefixed with comment so should be avoided however it had to add
-			 * defaults to CI so it can be processed normally and so comment is printed not
-			 * ignored
-			 *
-			 * TL;DR:All ArrayLists should have same size.
-			 */
-			if (currentLine.charAt(0) == '.') {
-				CI.addDefaults();
-				CI.addComment(currentLine);
-				continue;
-			}
-			CI.addLabel(Utility.removeExtraSpaces(currentLine.substring(0, 9).toUpperCase()));
-			CI.addCommand(Utility.removeExtraSpaces(currentLine.substring(9, 17).toUpperCase()));
-			String operand = Utility.removeExtraSpaces(currentLine.substring(17, 35).toUpperCase());
-			/*
-			 * get addressing mode - operand 1 - operand 2 values from operand string and
-			 * them to CI Accordingly
-			 **/
-			Utility.processOperand(operand, CI);
-			CI.addComment(currentLine.substring(35, 67));
+		if (currentLine.charAt(0) == '.') {
+			CI.addDefaults();
+			CI.addComment(currentLine);
+			CI.addLine();
+			return;
 		}
-		return CI;
+		CI.addLabel(field(currentLine, LABEL_START, MNEMONIC_START));
+		CI.addCommand(field(currentLine, MNEMONIC_START, OPERAND_START));
+		String operand = field(currentLine, OPERAND_START, COMMENT_START);
+		/*
+		 * get addressing mode - operand 1 - operand 2 values from operand string and
+		 * them to CI Accordingly
+		 **/
+		Utility.processOperand(operand, CI);
+		int length = currentLine.length();
+		CI.addComment(length <= COMMENT_START ? "" : currentLine.substring(COMMENT_START, Math.min(length, LINE_END)));
+		CI.addLine();
+	}
+
+	/*
+	 * a line of spaces only, as long as it fits in the columns.
+	 */
+	private static boolean isBlank(String line) {
+		int length = line.length();
+		if (length > LINE_END)
+			return false;
+		for (int i = 0; i < length; i++)
+			if (line.charAt(i) != ' ')
+				return false;
+		return true;
 	}
 
 	/**
-	 * tries to match and get instruction information from a line using regex. to
-	 * test regex i recommend going into this site https://regexr.com/ paste regex
-	 * in expression field and test case in text field then look at explanation &
-	 * details to know how the regex used or what did it match.
+	 * Reads a column in place as if the line was padded with spaces: a field with
+	 * less than 3 runs of spaces that ends with a space is cut after its first
+	 * word, leading spaces are kept so a misplaced field is still reported. Any
+	 * other field is kept as it is.
 	 * 
-	 * @param fileInfo
-	 *            the lines read from file usually after using this.readFile()
+	 * @param line
+	 *            the source line, not padded.
+	 * @param start
+	 *            first column of the field.
+	 * @param end
+	 *            column after the last one of the field.
 	 *
-	 * @return command info which have arraylists with correct instructions
-	 *         information later converted to Line.
+	 * @return the field, upper cased.
 	 */
-	private CommandInfo processFreeFormat(ArrayList<String> fileInfo) {
-		CommandInfo CI = new CommandInfo();
-
-		/* regex which is used to match the instruction information **/
-		String regex = "(\\S+)"; // matches any char that is not space/tabs/linebreaks
-		/* compile the regex using Java regex engine */
-		for (String currentLine : fileInfo) {
-			CI.addWholeInstruction(currentLine);
-			/*
-			 * this line is prefixed with comment so should be avoided however it had to add
-			 * defaults to CI so it can be processed normally and so comment is printed not
-			 * ignored
-			 *
-			 * TL;DR:All ArrayLists should have same size.
-			 */
-			if (currentLine.charAt(0) == '.') {
-				CI.addDefaults();
-				CI.addComment(currentLine);
-				continue;
-			}
-			ArrayList<String> elements = Utility.getMatches(currentLine, regex);
-			// ";(.+)" matches any char that come after ';'
-			switch (elements.size() - Utility.getNumberOfMatches(currentLine, ";(.+)")) {
-			case 2:
-				CI.addCommand(elements.get(0));
-				Utility.processOperand(elements.get(1), CI);
-				CI.addComment(Utility.getMatch(currentLine, ";(.+)"));
-				CI.addLabel("");
-				break;
-			case 3:
-				CI.addLabel(elements.get(0));
-				CI.addCommand(elements.get(1));
-				Utility.processOperand(elements.get(2), CI);
-				CI.addComment(Utility.getMatch(currentLine, ";(.+)"));
-				break;
-			default:
-				// CI.addDefaults();
-				// CI.addComment(currentLine);
-				break;
+	static String field(String line, int start, int end) {
+		int length = line.length();
+		if (start >= length)
+			return "";
+		int stop = Math.min(end, length);
+		boolean padded = stop < end;
+		boolean endsWithSpace = padded || line.charAt(stop - 1) == ' ';
 
+		int runs = 0;
+		int firstChar = -1;
+		int firstWordEnd = -1;
+		boolean inRun = false;
+		for (int i = start; i < stop; i++) {
+			char c = line.charAt(i);
+			boolean space = isRegexSpace(c);
+			if (space && !inRun)
+				runs++;
+			inRun = space;
+			if (firstChar < 0) {
+				if (c != ' ')
+					firstChar = i;
+			} else if (firstWordEnd < 0 && c == ' ') {
+				firstWordEnd = i;
 			}
-
 		}
+		// the padding past the end of the line is one more run of spaces
+		if (padded && !inRun)
+			runs++;
 
-		return CI;
+		if (runs >= 3 || !endsWithSpace)
+			return upperCase(line.substring(start, stop) + spaces(end - stop));
+		if (firstChar < 0)
+			return "";
+		return upperCase(line.substring(start, firstWordEnd < 0 ? stop : firstWordEnd));
+	}
 
+	private static boolean isRegexSpace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+	private static String spaces(int count) {
+		return count == 0 ? "" : Utility.getSpaces(count);
+	}
+
+	/*
+	 * most fields are upper case already, only copy the ones that are not.
+	 */
+	private static String upperCase(String field) {
+		for (int i = 0; i < field.length(); i++)
+			if (Character.isLowerCase(field.charAt(i)))
+				return field.toUpperCase();
+		return field;
+	}
+
+	/**
+	 * splits every line into its fields with a FreeFormatLexer, blank lines are
+	 * skipped like in restricted mode.
+	 * 
+	 * @param currentLine
+	 *            one line of the source.
+	 * @param lexer
+	 *            the lexer reused for every line of the source.
+	 * @param CI
+	 *            receives the fields of the line.
+	 */
+	private void processFreeFormat(String currentLine, FreeFormatLexer lexer, CommandInfo CI) {
+		if (!lexer.lex(currentLine))
+			return;
+		/*
+		 * this line is prefixed with comment so should be avoided however it had to add
+		 * defaults to CI so it can be processed normally and so comment is printed not
+		 * ignored
+		 */
+		if (currentLine.charAt(0) == '.') {
+			CI.addDefaults();
+			CI.addComment(currentLine);
+			CI.addLine();
+			return;
+		}
+		CI.addLabel(lexer.getLabel());
+		CI.addCommand(lexer.getMnemonic());
+		CI.addAddressMode(lexer.getAddressingMode());
+		CI.addOperand1(lexer.getFirstOperand());
+		CI.addOperand2(lexer.getSecondOperand());
+		CI.addComment(lexer.getComment());
+		CI.addLine();
 	}
 }
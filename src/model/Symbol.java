@@ -5,9 +5,9 @@ import model.utility.Utility;
 public class Symbol {
 
 	private String symbol;
-	private String address;
+	private int address;
 
-	public Symbol(String symbol, String address) {
+	public Symbol(String symbol, int address) {
 
 		this.symbol = symbol;
 		this.address = address;
@@ -21,17 +21,21 @@ public class Symbol {
 		this.symbol = symbol;
 	}
 
-	public String getAddress() {
+	public int getAddress() {
 		return address;
 	}
 
-	public void setAddress(String address) {
+	public void setAddress(int address) {
 		this.address = address;
 	}
 
+	/**
+	 * @return the symbol and its value as a 24-bit word in hex, a negative EQU
+	 *         value as its two's complement.
+	 */
 	@Override
 	public String toString() {
-		return symbol + Utility.getSpaces(12 - symbol.length()) + address + "\n";
+		return symbol + Utility.getSpaces(12 - symbol.length()) + Utility.convertToHexa(address & 0xFFFFFF) + "\n";
 	}
 
 }
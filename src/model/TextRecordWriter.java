@@ -0,0 +1,102 @@
+package model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import model.utility.Utility;
+
+/**
+ * Packs object code into T records as it is produced and appends every full
+ * record to a sink, so the object program is written in one pass:
+ *
+ * T^START^LENGTH^CODE
+ *
+ * The code of one instruction or constant is never split, when it does not fit
+ * in the current record it opens the next one. Code is contiguous within a
+ * record, a gap left by RESB, RESW or ORG starts the next one at the address
+ * the code goes to.
+ */
+public class TextRecordWriter {
+
+	public static final int DEFAULT_RECORD_LENGTH = 30;
+
+	private final Appendable sink;
+	private final int recordLength;
+	private final StringBuilder record;
+	private int recordStart;
+	private int recordBytes = 0;
+
+	/**
+	 * @param sink
+	 *            receives each record followed by a line break.
+	 * @param startAddress
+	 *            address of the first byte of the first record.
+	 * @param recordLength
+	 *            maximum number of bytes in one record.
+	 */
+	public TextRecordWriter(Appendable sink, int startAddress, int recordLength) {
+		if (recordLength < 1)
+			throw new IllegalArgumentException("Record length must be positive: " + recordLength);
+		this.sink = sink;
+		this.recordStart = startAddress;
+		this.recordLength = recordLength;
+		this.record = new StringBuilder(recordLength * 2);
+	}
+
+	public TextRecordWriter(Appendable sink, int startAddress) {
+		this(sink, startAddress, DEFAULT_RECORD_LENGTH);
+	}
+
+	/**
+	 * places the code written next at an address, the record being filled is
+	 * written first unless it ends there.
+	 */
+	public void moveTo(int address) {
+		if (recordStart + recordBytes == address)
+			return;
+		flush();
+		recordStart = address;
+	}
+
+	/**
+	 * @param code
+	 *            object code in hex, two digits for each byte.
+	 */
+	public void write(CharSequence code) {
+		int bytes = code.length() / 2;
+		if (recordBytes > 0 && recordBytes + bytes > recordLength)
+			flush();
+		record.append(code);
+		recordBytes += bytes;
+	}
+
+	/**
+	 * @param code
+	 *            object code of an instruction in its low bytes.
+	 * @param bytes
+	 *            number of bytes of the code.
+	 */
+	public void write(int code, int bytes) {
+		if (recordBytes > 0 && recordBytes + bytes > recordLength)
+			flush();
+		Utility.appendHex(record, code, bytes);
+		recordBytes += bytes;
+	}
+
+	/**
+	 * writes the record being filled, if it has any code.
+	 */
+	public void flush() {
+		if (recordBytes == 0)
+			return;
+		try {
+			sink.append("T^").append(String.format("%1$06X", recordStart)).append('^')
+					.append(String.format("%1$02X", recordBytes)).append('^').append(record).append('\n');
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		recordStart += recordBytes;
+		recordBytes = 0;
+		record.setLength(0);
+	}
+}
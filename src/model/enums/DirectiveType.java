@@ -0,0 +1,5 @@
+package model.enums;
+
+public enum DirectiveType {
+	START, END, BYTE, WORD, RESB, RESW, EQU, ORG, BASE, NOBASE, LTORG
+}
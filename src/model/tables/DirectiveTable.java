@@ -1,34 +1,41 @@
 package model.tables;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 
 import model.Directive;
+import model.enums.DirectiveType;
 import model.enums.Format;
 
 public class DirectiveTable {
 
-	public static HashMap<String, Directive> directiveTable = new HashMap<>();
-
-	public static void loadDirectiveTable() {
-		directiveTable.put("START", new Directive("START", Format.NONE));
-		directiveTable.put("END", new Directive("END", Format.NONE));
-		directiveTable.put("BYTE", new Directive("BYTE", Format.VARIABLE));
-		directiveTable.put("WORD", new Directive("WORD", Format.THREE));
-		directiveTable.put("RESB", new Directive("RESB", Format.VARIABLE));
-		directiveTable.put("RESW", new Directive("RESW", Format.VARIABLE));
-		directiveTable.put("EQU", new Directive("EQU", Format.NONE));
-		directiveTable.put("ORG", new Directive("ORG", Format.NONE));
-		directiveTable.put("BASE", new Directive("BASE", Format.NONE));
-		directiveTable.put("NOBASE", new Directive("NOBASE", Format.NONE));
-		directiveTable.put("LTORG", new Directive("LTORG", Format.NONE));
+	/*
+	 * Shared by every assembly session, it is built once and never modified
+	 * afterwards.
+	 */
+	public static volatile Map<String, Directive> directiveTable = Collections.emptyMap();
+
+	public static synchronized void loadDirectiveTable() {
+		if (!directiveTable.isEmpty())
+			return;
+		HashMap<String, Directive> directiveTable = new HashMap<>();
+		directiveTable.put("START", new Directive(DirectiveType.START, Format.NONE));
+		directiveTable.put("END", new Directive(DirectiveType.END, Format.NONE));
+		directiveTable.put("BYTE", new Directive(DirectiveType.BYTE, Format.VARIABLE));
+		directiveTable.put("WORD", new Directive(DirectiveType.WORD, Format.THREE));
+		directiveTable.put("RESB", new Directive(DirectiveType.RESB, Format.VARIABLE));
+		directiveTable.put("RESW", new Directive(DirectiveType.RESW, Format.VARIABLE));
+		directiveTable.put("EQU", new Directive(DirectiveType.EQU, Format.NONE));
+		directiveTable.put("ORG", new Directive(DirectiveType.ORG, Format.NONE));
+		directiveTable.put("BASE", new Directive(DirectiveType.BASE, Format.NONE));
+		directiveTable.put("NOBASE", new Directive(DirectiveType.NOBASE, Format.NONE));
+		directiveTable.put("LTORG", new Directive(DirectiveType.LTORG, Format.NONE));
+		DirectiveTable.directiveTable = Collections.unmodifiableMap(directiveTable);
 	}
 
-	public HashMap<String, Directive> getDirectiveTable() {
+	public static Map<String, Directive> getDirectiveTable() {
 		return directiveTable;
 	}
 
-	public void setDirectiveTable(HashMap<String, Directive> directiveTable) {
-		DirectiveTable.directiveTable = directiveTable;
-	}
-
 }
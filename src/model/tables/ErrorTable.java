@@ -33,7 +33,9 @@ public class ErrorTable {
 
 	public static String[] errorList = new String[100];
 
-	public static void loadErrorList() {
+	public static synchronized void loadErrorList() {
+		if (errorList[NO_ERROR] != null)
+			return;
 		errorList[MISPLACED_LABEL] = "ERROR: Misplaced label";
 		errorList[MISSING_MISPLACED_OPERATION_MNEMONIC] = "ERROR: Missing or misplaced operation mnemonic ";
 		errorList[MISSING_MISPLACED_OPERAND_FIELD] = "ERROR: Missing or misplaced operand field "; // DONE
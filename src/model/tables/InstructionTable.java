@@ -1,7 +1,9 @@
 package model.tables;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -12,33 +14,44 @@ import model.enums.OperandType;
 
 public class InstructionTable {
 
-	public static HashMap<String, Instruction> instructionTable = new HashMap<>();
+	/* the opcode table, read relative to the working directory */
+	public static final String OPCODE_FILE = "res/SIC-XE Instructions Opcode.txt";
 
-	public HashMap<String, Instruction> getInstructionTable() {
-		return instructionTable;
-	}
+	/* NAME OPCODE FIRSTOPERAND SECONDOPERAND FORMAT */
+	private static final Pattern INSTRUCTION_ENTRY = Pattern
+			.compile("(.+)[ |\\t]+([a-fA-F0-9]+)[ |\\t]+(\\S+)[ |\\t]+(\\S+)[ |\\t]+(\\S+)");
+	private static final Pattern SPACES = Pattern.compile("\\s+");
 
-	public void setInstructionTable(HashMap<String, Instruction> instructionTable) {
-		InstructionTable.instructionTable = instructionTable;
+	/*
+	 * Shared by every assembly session, it is built once and never modified
+	 * afterwards.
+	 */
+	public static volatile Map<String, Instruction> instructionTable = Collections.emptyMap();
+
+	public static Map<String, Instruction> getInstructionTable() {
+		return instructionTable;
 	}
 
-	public static void loadInstructionTable() {
-		ArrayList<String> fileInfo = SourceReader.getInstance().readFile("res/SIC-XE Instructions Opcode.txt");
-		String regex = "(.+)[ |\\t]+([a-fA-F0-9]+)[ |\\t]+(\\S+)[ |\\t]+(\\S+)[ |\\t]+(\\S+)";
-		Pattern reg = Pattern.compile(regex);
+	public static synchronized void loadInstructionTable() {
+		if (!instructionTable.isEmpty())
+			return;
+		HashMap<String, Instruction> table = new HashMap<>();
+		ArrayList<String> fileInfo = SourceReader.getInstance().readFile(OPCODE_FILE);
+		Pattern reg = INSTRUCTION_ENTRY;
 		int len = fileInfo.size();
 		for (int i = 0; i < len; i++) {
 			Matcher m = reg.matcher(fileInfo.get(i));
 			if (!m.find())
 				continue;
-			Instruction instruction = new Instruction(m.group(1).replaceAll("\\s+", ""),
-					Integer.parseInt(m.group(2), 16));
-			String firstOperand = m.group(3).replaceAll("\\s+", "");
-			String secondOperand = m.group(4).replaceAll("\\s+", "");
-			String format = m.group(5).replaceAll("\\s+", "");
+			String name = SPACES.matcher(m.group(1)).replaceAll("");
+			Instruction instruction = new Instruction(name, Integer.parseInt(m.group(2), 16));
+			String firstOperand = SPACES.matcher(m.group(3)).replaceAll("");
+			String secondOperand = SPACES.matcher(m.group(4)).replaceAll("");
+			String format = SPACES.matcher(m.group(5)).replaceAll("");
 			setInstruction(instruction, firstOperand, secondOperand, format);
-			instructionTable.put(m.group(1).replaceAll("\\s+", ""), instruction);
+			table.put(name, instruction);
 		}
+		instructionTable = Collections.unmodifiableMap(table);
 	}
 
 	private static void setInstruction(Instruction instruction, String firstOperand, String secondOperand,
@@ -0,0 +1,53 @@
+package model.tables;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Gives every label of a program a dense integer id, in the order the labels
+ * are first seen. Ids index plain arrays in the later passes and a name is
+ * looked up with a single hash probe.
+ */
+public class LabelIndex {
+
+	public static final int NO_LABEL = -1;
+
+	private final HashMap<String, Integer> ids = new HashMap<>();
+	private final ArrayList<String> names = new ArrayList<>();
+
+	/**
+	 * @param name
+	 *            a label as it is written in the source.
+	 *
+	 * @return the id of the label, a new one if it was not seen before.
+	 */
+	public int intern(String name) {
+		Integer id = ids.get(name);
+		if (id != null)
+			return id;
+		int newId = names.size();
+		ids.put(name, newId);
+		names.add(name);
+		return newId;
+	}
+
+	/**
+	 * @return the id of the label or NO_LABEL.
+	 */
+	public int getId(String name) {
+		Integer id = ids.get(name);
+		return id == null ? NO_LABEL : id;
+	}
+
+	public boolean contains(String name) {
+		return ids.containsKey(name);
+	}
+
+	public String getName(int id) {
+		return names.get(id);
+	}
+
+	public int size() {
+		return names.size();
+	}
+}
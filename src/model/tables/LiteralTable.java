@@ -6,9 +6,21 @@ import java.util.HashMap;
 
 public class LiteralTable {
 
-	public static HashMap<String, Literal> literalTable = new HashMap<>();
+	private HashMap<String, Literal> literalTable = new HashMap<>();
 
-	public static String getString() {
+	public Literal get(String operand) {
+		return literalTable.get(operand);
+	}
+
+	public void put(String operand, Literal literal) {
+		literalTable.put(operand, literal);
+	}
+
+	public void clear() {
+		literalTable.clear();
+	}
+
+	public String getString() {
 		StringBuilder listAsString = new StringBuilder();
 		for (HashMap.Entry<String, Literal> literal : literalTable.entrySet()) {
 			listAsString.append(literal.getValue().toString());
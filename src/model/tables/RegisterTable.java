@@ -1,12 +1,21 @@
 package model.tables;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 
 public class RegisterTable {
 
-	public static HashMap<String, Integer> registerTable = new HashMap<>();
+	/*
+	 * Shared by every assembly session, it is built once and never modified
+	 * afterwards.
+	 */
+	public static volatile Map<String, Integer> registerTable = Collections.emptyMap();
 
-	public static void loadRegisterTable() {
+	public static synchronized void loadRegisterTable() {
+		if (!registerTable.isEmpty())
+			return;
+		HashMap<String, Integer> registerTable = new HashMap<>();
 		registerTable.put("A", 0);
 		registerTable.put("X", 1);
 		registerTable.put("L", 2);
@@ -16,16 +25,13 @@ public class RegisterTable {
 		registerTable.put("F", 6);
 		registerTable.put("PC", 8);
 		registerTable.put("SW", 9);
+		RegisterTable.registerTable = Collections.unmodifiableMap(registerTable);
 	}
 
-	public HashMap<String, Integer> getRegisterTable() {
+	public static Map<String, Integer> getRegisterTable() {
 		return registerTable;
 	}
 
-	public void setRegisterTable(HashMap<String, Integer> registerTable) {
-		RegisterTable.registerTable = registerTable;
-	}
-
 }
 
 /*
@@ -1,20 +1,55 @@
 package model.tables;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 
 import model.Symbol;
 
+/**
+ * Symbols are kept in an array indexed by the label ids of the session, a
+ * lookup by name costs one probe of the label index.
+ */
 public class SymbolTable {
 
-	public static HashMap<String, Symbol> symbolTable = new HashMap<>();
+	private final LabelIndex labels;
+	// null where the label has no symbol yet
+	private final ArrayList<Symbol> symbolTable = new ArrayList<>();
 
-	public static String getString() {
+	public SymbolTable(LabelIndex labels) {
+		this.labels = labels;
+	}
+
+	public Symbol get(String symbol) {
+		return get(labels.getId(symbol));
+	}
+
+	public Symbol get(int id) {
+		if (id < 0 || id >= symbolTable.size())
+			return null;
+		return symbolTable.get(id);
+	}
+
+	public void put(String name, Symbol symbol) {
+		put(labels.intern(name), symbol);
+	}
+
+	public void put(int id, Symbol symbol) {
+		while (symbolTable.size() <= id)
+			symbolTable.add(null);
+		symbolTable.set(id, symbol);
+	}
+
+	public void clear() {
+		symbolTable.clear();
+	}
+
+	public String getString() {
 
 		StringBuilder table = new StringBuilder();
-		for (HashMap.Entry<String, Symbol> symbol : symbolTable.entrySet()) {
-			table.append(symbol.getValue().toString());
+		for (Symbol symbol : symbolTable) {
+			if (symbol != null)
+				table.append(symbol.toString());
 		}
 		return table.toString();
 	}
 
-}
\ No newline at end of file
+}
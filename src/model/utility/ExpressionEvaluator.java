@@ -0,0 +1,121 @@
+package model.utility;
+
+/**
+ * Integer evaluator for the arithmetic expressions accepted in operands, after
+ * their labels have been replaced by addresses:
+ *
+ * expression := term (('+' | '-') term)*
+ * term := factor (('*' | '/') factor)*
+ * factor := number | '(' expression ')' | '-' factor
+ *
+ * Arithmetic follows the 24-bit SIC/XE word: every intermediate result wraps
+ * to a signed 24-bit value and division truncates toward zero.
+ */
+public class ExpressionEvaluator {
+
+	private final CharSequence expression;
+	private int position;
+
+	private ExpressionEvaluator(CharSequence expression) {
+		this.expression = expression;
+	}
+
+	/**
+	 * @param expression
+	 *            numbers, + - * / and parentheses, spaces are ignored.
+	 *
+	 * @return the value of the expression.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the expression is malformed.
+	 * @throws ArithmeticException
+	 *             on a division by zero.
+	 */
+	public static int evaluate(CharSequence expression) {
+		ExpressionEvaluator evaluator = new ExpressionEvaluator(expression);
+		int value = evaluator.parseExpression();
+		evaluator.skipSpaces();
+		if (evaluator.position != expression.length())
+			throw evaluator.error();
+		return value;
+	}
+
+	private int parseExpression() {
+		int value = parseTerm();
+		while (true) {
+			char c = peek();
+			if (c == '+') {
+				position++;
+				value = toWord(value + parseTerm());
+			} else if (c == '-') {
+				position++;
+				value = toWord(value - parseTerm());
+			} else {
+				return value;
+			}
+		}
+	}
+
+	private int parseTerm() {
+		int value = parseFactor();
+		while (true) {
+			char c = peek();
+			if (c == '*') {
+				position++;
+				value = toWord(value * parseFactor());
+			} else if (c == '/') {
+				position++;
+				value = toWord(value / parseFactor());
+			} else {
+				return value;
+			}
+		}
+	}
+
+	private int parseFactor() {
+		char c = peek();
+		if (c == '(') {
+			position++;
+			int value = parseExpression();
+			if (peek() != ')')
+				throw error();
+			position++;
+			return value;
+		}
+		if (c == '-') {
+			position++;
+			return toWord(-parseFactor());
+		}
+		if (c < '0' || c > '9')
+			throw error();
+		long value = 0;
+		while (position < expression.length() && (c = expression.charAt(position)) >= '0' && c <= '9') {
+			value = value * 10 + (c - '0');
+			if (value > Integer.MAX_VALUE)
+				throw error();
+			position++;
+		}
+		return toWord((int) value);
+	}
+
+	private char peek() {
+		skipSpaces();
+		return position < expression.length() ? expression.charAt(position) : '\0';
+	}
+
+	private void skipSpaces() {
+		while (position < expression.length() && Character.isWhitespace(expression.charAt(position)))
+			position++;
+	}
+
+	private IllegalArgumentException error() {
+		return new IllegalArgumentException("Malformed expression at " + position + ": " + expression);
+	}
+
+	/**
+	 * @return the value wrapped to a signed 24-bit word.
+	 */
+	public static int toWord(int value) {
+		return (value << 8) >> 8;
+	}
+}
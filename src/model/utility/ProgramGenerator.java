@@ -0,0 +1,522 @@
+package model.utility;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.Random;
+
+/**
+ * Generates valid SIC/XE programs of a chosen number of lines for benchmarks
+ * and stress tests. The same seed always gives the same program.
+ *
+ * The statement mix covers formats 1 to 4 with every addressing mode, literals
+ * flushed in LTORG pools, EQU expressions, ORG overlays, BASE/NOBASE around
+ * large RESB/RESW blocks and plain data, in restricted column or free format
+ * layout. The generator keeps its own location counter so every format 3
+ * operand stays inside the PC relative (or base relative) range, every literal
+ * pool is placed before its literals fall out of reach and the program fits in
+ * the 20-bit address space. Once the program is that large, the rest of the
+ * requested lines are comments.
+ *
+ * usage: ProgramGenerator &lt;lines&gt; [-free] [-seed n] [-o file]
+ */
+public class ProgramGenerator {
+
+	public enum Statement {
+		FORMAT_ONE, FORMAT_TWO, FORMAT_THREE, FORMAT_FOUR, LITERAL, LOOP, DATA, EQU, ORG, BASE, COMMENT
+	}
+
+	private static final String[] FORMAT_ONE = { "NORM", "SIO", "TIO" };
+	private static final String[] FORMAT_TWO = { "ADDR", "COMPR", "DIVR", "MULR", "RMO", "SUBR" };
+	private static final String[] FORMAT_TWO_SINGLE = { "CLEAR", "TIXR" };
+	private static final String[] FORMAT_THREE = { "ADD", "AND", "COMP", "DIV", "LDA", "LDB", "LDCH", "LDL", "LDS",
+			"LDT", "LDX", "MUL", "OR", "STA", "STB", "STCH", "STL", "STS", "STT", "STX", "SUB", "TIX" };
+	private static final String[] JUMPS = { "J", "JEQ", "JGT", "JLT" };
+	private static final String[] REGISTERS = { "A", "X", "L", "B", "S", "T" };
+
+	// a format 3 operand is only chosen among labels this close to the instruction
+	private static final int REACH = 1536;
+	// number of lines of the largest statement group
+	private static final int MAX_GROUP = 6;
+	// no group starts past this location, the largest one still ends below 0x100000
+	private static final int MAX_LOCATION = 0xF0000;
+	// RESB and RESW blocks take at most this many bytes together
+	private static final int MAX_RESERVED = 0x40000;
+	// a base block is out of PC relative reach, and at most this large
+	private static final int MIN_BLOCK = 4096;
+	private static final int MAX_BLOCK = 5 * MIN_BLOCK;
+
+	private final Random random;
+	private final EnumMap<Statement, Integer> weights = new EnumMap<>(Statement.class);
+
+	// per program state
+	private Appendable out;
+	private boolean restricted;
+	private int lines;
+	private int location;
+	private int reserved;
+	private int nextLabel;
+	private ArrayList<String> dataLabels;
+	private ArrayList<Integer> dataAddresses;
+	private ArrayList<String> codeLabels;
+	private ArrayList<Integer> codeAddresses;
+	private LinkedHashSet<String> pendingLiterals;
+	private int pendingLiteralBytes;
+	// location of the first instruction using a literal of the next pool
+	private int firstLiteralUse;
+	private int poolSize;
+
+	public ProgramGenerator(long seed) {
+		random = new Random(seed);
+		weights.put(Statement.FORMAT_ONE, 4);
+		weights.put(Statement.FORMAT_TWO, 12);
+		weights.put(Statement.FORMAT_THREE, 36);
+		weights.put(Statement.FORMAT_FOUR, 8);
+		weights.put(Statement.LITERAL, 8);
+		weights.put(Statement.LOOP, 5);
+		weights.put(Statement.DATA, 12);
+		weights.put(Statement.EQU, 5);
+		weights.put(Statement.ORG, 2);
+		weights.put(Statement.BASE, 1);
+		weights.put(Statement.COMMENT, 3);
+	}
+
+	public static void main(String[] args) throws IOException {
+		int lines = -1;
+		boolean restricted = true;
+		long seed = 0;
+		String output = null;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "-free":
+				restricted = false;
+				break;
+			case "-seed":
+				seed = Long.parseLong(args[++i]);
+				break;
+			case "-o":
+				output = args[++i];
+				break;
+			default:
+				lines = Integer.parseInt(args[i]);
+				break;
+			}
+		}
+		if (lines < 0) {
+			System.err.println("usage: ProgramGenerator <lines> [-free] [-seed n] [-o file]");
+			System.exit(2);
+		}
+		Writer writer = new BufferedWriter(output == null ? new OutputStreamWriter(System.out) : new FileWriter(output));
+		new ProgramGenerator(seed).generate(lines, restricted, writer);
+		writer.close();
+	}
+
+	/**
+	 * @param statement
+	 *            the kind of statement group.
+	 * @param weight
+	 *            relative frequency of the group, 0 disables it.
+	 */
+	public void setWeight(Statement statement, int weight) {
+		weights.put(statement, weight);
+	}
+
+	public String generate(int lines, boolean restricted) {
+		StringBuilder program = new StringBuilder(lines * 40);
+		try {
+			generate(lines, restricted, program);
+		} catch (IOException e) {
+			// StringBuilder does not throw
+		}
+		return program.toString();
+	}
+
+	/**
+	 * Writes a program of exactly the requested number of lines (at least 4).
+	 */
+	public void generate(int lines, boolean restricted, Appendable out) throws IOException {
+		this.out = out;
+		this.restricted = restricted;
+		this.lines = 0;
+		location = 0x1000;
+		reserved = 0;
+		nextLabel = 0;
+		dataLabels = new ArrayList<>();
+		dataAddresses = new ArrayList<>();
+		codeLabels = new ArrayList<>();
+		codeAddresses = new ArrayList<>();
+		pendingLiterals = new LinkedHashSet<>();
+		pendingLiteralBytes = 0;
+		poolSize = 3 + random.nextInt(6);
+
+		lines = Math.max(lines, 4);
+		comment("Generated SIC/XE program");
+		line("GEN", "START", "1000", null);
+		String first = newLabel("L");
+		codeLabels.add(first);
+		codeAddresses.add(location);
+		line(first, "LDA", "#0", null);
+		location += 3;
+
+		int total = 0;
+		for (int weight : weights.values())
+			total += weight;
+		while (this.lines + MAX_GROUP + 2 < lines) {
+			if (location >= MAX_LOCATION) {
+				comment("Filler");
+				continue;
+			}
+			// the pool goes before the next group could take its literals out of reach
+			if (!pendingLiterals.isEmpty() && location - firstLiteralUse >= REACH)
+				ltorg();
+			int pick = random.nextInt(total);
+			for (Statement statement : Statement.values()) {
+				pick -= weights.get(statement);
+				if (pick < 0) {
+					emit(statement);
+					break;
+				}
+			}
+		}
+		while (this.lines + (pendingLiterals.isEmpty() ? 1 : 2) < lines)
+			formatTwo();
+		if (!pendingLiterals.isEmpty())
+			ltorg();
+		line("", "END", first, null);
+	}
+
+	private void emit(Statement statement) throws IOException {
+		switch (statement) {
+		case FORMAT_ONE:
+			line(maybeCodeLabel(), pick(FORMAT_ONE), "", null);
+			location += 1;
+			break;
+		case FORMAT_TWO:
+			formatTwo();
+			break;
+		case FORMAT_THREE:
+			formatThree();
+			break;
+		case FORMAT_FOUR:
+			formatFour();
+			break;
+		case LITERAL:
+			literal();
+			break;
+		case LOOP:
+			loop();
+			break;
+		case DATA:
+			data();
+			break;
+		case EQU:
+			equ();
+			break;
+		case ORG:
+			org();
+			break;
+		case BASE:
+			base();
+			break;
+		case COMMENT:
+			comment("Block " + nextLabel);
+			break;
+		}
+	}
+
+	private void formatTwo() throws IOException {
+		if (random.nextInt(4) == 0)
+			line(maybeCodeLabel(), pick(FORMAT_TWO_SINGLE), pick(REGISTERS), null);
+		else
+			line(maybeCodeLabel(), pick(FORMAT_TWO), pick(REGISTERS) + "," + pick(REGISTERS), null);
+		location += 2;
+	}
+
+	private void formatThree() throws IOException {
+		String label = maybeCodeLabel();
+		int mode = random.nextInt(10);
+		if (mode == 0) {
+			line(label, "RSUB", "", null);
+		} else if (mode == 1) {
+			// immediate numbers are read as hex, 999 is the largest that fits 12 bits
+			line(label, pick(FORMAT_THREE), "#" + random.nextInt(1000), null);
+		} else {
+			String operand = reachableData();
+			if (mode == 2)
+				operand = "#" + operand;
+			else if (mode == 3)
+				operand = "@" + operand;
+			else if (mode == 4)
+				operand = operand + ",X";
+			line(label, pick(FORMAT_THREE), operand, random.nextInt(6) == 0 ? "operand" : null);
+		}
+		location += 3;
+	}
+
+	private void formatFour() throws IOException {
+		String operand = random.nextBoolean() ? "#" + random.nextInt(100000) : reachableData();
+		line(maybeCodeLabel(), "+" + pick(FORMAT_THREE), operand, null);
+		location += 4;
+	}
+
+	private void literal() throws IOException {
+		String literal;
+		int length;
+		int value = nextLabel++;
+		int kind = random.nextInt(3);
+		// a word literal keeps 4 digits, a larger value would repeat one of an
+		// earlier pool, out of reach by now
+		if (kind == 2 && value >= 10000)
+			kind = 1;
+		switch (kind) {
+		case 0:
+			literal = "=C'Q" + value + "'";
+			length = Integer.toString(value).length() + 1;
+			break;
+		case 1:
+			String hex = Integer.toHexString(value).toUpperCase();
+			if (hex.length() % 2 == 1)
+				hex = "0" + hex;
+			literal = "=X'" + hex + "'";
+			length = hex.length() / 2;
+			break;
+		default:
+			literal = "=W'" + (value % 10000) + "'";
+			length = 3;
+			break;
+		}
+		line(maybeCodeLabel(), pick(FORMAT_THREE), literal, null);
+		if (pendingLiterals.isEmpty())
+			firstLiteralUse = location;
+		location += 3;
+		if (pendingLiterals.add(literal))
+			pendingLiteralBytes += length;
+		if (pendingLiterals.size() >= poolSize)
+			ltorg();
+	}
+
+	private void ltorg() throws IOException {
+		line("", "LTORG", "", null);
+		location += pendingLiteralBytes;
+		pendingLiterals.clear();
+		pendingLiteralBytes = 0;
+		poolSize = 3 + random.nextInt(6);
+	}
+
+	private void loop() throws IOException {
+		String target = null;
+		for (int i = codeLabels.size() - 1; i >= 0 && location - codeAddresses.get(i) < REACH; i--) {
+			if (random.nextBoolean()) {
+				target = codeLabels.get(i);
+				break;
+			}
+		}
+		if (target == null) {
+			target = newLabel("L");
+			codeLabels.add(target);
+			codeAddresses.add(location);
+			line(target, "TIXR", "T", null);
+			location += 2;
+		}
+		line("", pick(JUMPS), target, "loop");
+		location += 3;
+	}
+
+	private void data() throws IOException {
+		String label = newLabel("D");
+		dataLabels.add(label);
+		dataAddresses.add(location);
+		switch (random.nextInt(5)) {
+		case 0:
+			line(label, "BYTE", "C'D" + label.substring(1) + "'", null);
+			location += label.length();
+			break;
+		case 1:
+			line(label, "BYTE", "X'" + String.format("%02X", random.nextInt(256)) + "'", null);
+			location += 1;
+			break;
+		case 2:
+			int words = 1 + random.nextInt(8);
+			line(label, "RESW", Integer.toString(words), null);
+			reserve(3 * words);
+			break;
+		case 3:
+			int bytes = 1 + random.nextInt(32);
+			line(label, "RESB", Integer.toString(bytes), null);
+			reserve(bytes);
+			break;
+		default:
+			line(label, "WORD", Integer.toString(random.nextInt(10000)), null);
+			location += 3;
+			break;
+		}
+	}
+
+	private void equ() throws IOException {
+		String label = newLabel("K");
+		String first = reachableData();
+		String second = reachableData();
+		String expression;
+		switch (random.nextInt(5)) {
+		case 0:
+			expression = first;
+			break;
+		case 1:
+			expression = first + "+" + random.nextInt(64);
+			break;
+		case 2:
+			expression = first + "-" + second;
+			break;
+		case 3:
+			expression = "(" + first + "-" + second + ")/2";
+			break;
+		default:
+			expression = random.nextInt(100) + "*" + random.nextInt(100);
+			break;
+		}
+		// the restricted operand field is 18 columns wide
+		if (expression.length() > 18)
+			expression = first + "-" + second;
+		line(label, "EQU", expression, null);
+	}
+
+	private void org() throws IOException {
+		String table = newLabel("T");
+		int size = 2 * (1 + random.nextInt(8));
+		dataLabels.add(table);
+		dataAddresses.add(location);
+		line(table, "RESB", Integer.toString(size), "table");
+		reserved += size;
+		line("", "ORG", table, null);
+		String low = newLabel("F");
+		String high = newLabel("G");
+		line(low, "RESB", Integer.toString(size / 2), null);
+		line(high, "RESB", Integer.toString(size / 2), null);
+		dataLabels.add(low);
+		dataAddresses.add(location);
+		dataLabels.add(high);
+		dataAddresses.add(location + size / 2);
+		location += size;
+	}
+
+	private void base() throws IOException {
+		if (reserved + MAX_BLOCK > MAX_RESERVED) {
+			// no room left for another block
+			formatThree();
+			return;
+		}
+		// literals must be placed before the block or they fall out of reach
+		if (!pendingLiterals.isEmpty())
+			ltorg();
+		String block = newLabel("B");
+		line("", "LDB", "#" + block, null);
+		location += 3;
+		line("", "BASE", block, null);
+		if (random.nextBoolean()) {
+			int bytes = MIN_BLOCK + random.nextInt(MAX_BLOCK - MIN_BLOCK);
+			line(block, "RESB", Integer.toString(bytes), "buffer");
+			reserve(bytes);
+		} else {
+			int words = (MIN_BLOCK + 2) / 3 + random.nextInt((MAX_BLOCK - MIN_BLOCK) / 3);
+			line(block, "RESW", Integer.toString(words), "buffer");
+			reserve(3 * words);
+		}
+		// out of PC relative reach, assembled base relative
+		line("", pick(FORMAT_THREE), block, null);
+		location += 3;
+		line("", "NOBASE", "", null);
+		// everything before the block is out of reach now
+		dataLabels.clear();
+		dataAddresses.clear();
+		codeLabels.clear();
+		codeAddresses.clear();
+	}
+
+	private void reserve(int bytes) {
+		location += bytes;
+		reserved += bytes;
+	}
+
+	/**
+	 * @return a data label within PC relative reach, defining a new one when none
+	 *         is left.
+	 */
+	private String reachableData() throws IOException {
+		int candidates = 0;
+		for (int i = dataLabels.size() - 1; i >= 0 && location - dataAddresses.get(i) < REACH; i--)
+			candidates++;
+		if (candidates == 0) {
+			data();
+			candidates = 1;
+		}
+		return dataLabels.get(dataLabels.size() - 1 - random.nextInt(Math.min(candidates, 16)));
+	}
+
+	private String maybeCodeLabel() {
+		if (random.nextInt(8) != 0)
+			return "";
+		String label = newLabel("L");
+		codeLabels.add(label);
+		codeAddresses.add(location);
+		return label;
+	}
+
+	private String newLabel(String prefix) {
+		return prefix + nextLabel++;
+	}
+
+	private String pick(String[] values) {
+		return values[random.nextInt(values.length)];
+	}
+
+	private void comment(String text) throws IOException {
+		out.append('.').append(text).append('\n');
+		lines++;
+	}
+
+	private void line(String label, String mnemonic, String operand, String comment) throws IOException {
+		if (restricted) {
+			// label 0-8, mnemonic 9-16, operand 17-34, comment 35-66
+			pad(out.append(label), 9 - label.length());
+			out.append(mnemonic);
+			if (!operand.isEmpty() || comment != null) {
+				pad(out, 8 - mnemonic.length());
+				out.append(operand);
+			}
+			if (comment != null)
+				pad(out, 18 - operand.length()).append(comment);
+		} else {
+			out.append(label);
+			whitespace();
+			out.append(mnemonic);
+			if (!operand.isEmpty()) {
+				whitespace();
+				out.append(operand);
+			}
+			if (comment != null) {
+				whitespace();
+				out.append(';').append(comment);
+			}
+		}
+		out.append('\n');
+		lines++;
+	}
+
+	private void whitespace() throws IOException {
+		if (random.nextInt(4) == 0)
+			out.append('\t');
+		else
+			pad(out, 1 + random.nextInt(6));
+	}
+
+	private static Appendable pad(Appendable out, int count) throws IOException {
+		for (int i = 0; i < count; i++)
+			out.append(' ');
+		return out;
+	}
+}
@@ -2,71 +2,52 @@ package model.utility;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
-import java.math.BigInteger;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
-import javax.script.ScriptException;
-
-import controller.Controller;
+import model.AssemblySession;
 import model.CommandInfo;
-import model.ErrorChecker;
-import model.ProgramCounter;
-import model.enums.Format;
 import model.tables.DirectiveTable;
 import model.tables.InstructionTable;
-import model.tables.LiteralTable;
 import model.tables.RegisterTable;
-import model.tables.SymbolTable;
 
 public class Utility {
 
-	public static String binToHex(String bin) {
-
-		int decimal = Integer.parseInt(bin, 2);
-		return convertToHexa(decimal);
+	public static int hexToDecimal(String hex) {
+		return Integer.parseInt(hex, 16);
 	}
 
-	public static String binToHex(String bin, Format format) {
-
-		long decimal = Long.parseLong(bin, 2);
-		String res = convertToHexa((int) decimal); 
-		String zeros;
-		if (format == Format.THREE)
-			zeros = getZeros(6 - res.length());
-		else
-			zeros = getZeros(8 - res.length());
-		res = zeros + res;
-		return res;
+	public static String convertToHexa(int address) {
+		return String.format("%1$04X", address);
 	}
 
-	public static String hexToBin(String hex) {
-
-		String res = new BigInteger(hex, 16).toString(2);
-		res = getZeros(20 - res.length()) + res;
-		return res;
-	}
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
 
-	public static int hexToDecimal(String hex) {
-		return Integer.parseInt(hex, 16);
+	/**
+	 * appends the low bytes of a value in upper case hex, two digits for each
+	 * byte.
+	 * 
+	 * @param bytes
+	 *            number of bytes to append, 1 to 4.
+	 */
+	public static void appendHex(StringBuilder out, int value, int bytes) {
+		appendHexDigits(out, value, bytes * 2);
 	}
 
-	public static String convertToHexa(int address) {
-		return String.format("%1$04X", address);
+	/**
+	 * appends an address the way convertToHexa formats it, at least 4 digits.
+	 */
+	public static void appendHexa(StringBuilder out, int address) {
+		int digits = (32 - Integer.numberOfLeadingZeros(address) + 3) / 4;
+		appendHexDigits(out, address, Math.max(4, digits));
 	}
 
-	public static void clearAll() {
-		ErrorChecker.getInstance().getLabelList().clear();
-		ProgramCounter.getInstance().resetAddresses();
-		CommandInfo.labelList.clear();
-		SymbolTable.symbolTable.clear();
-		LiteralTable.literalTable.clear();
-		Controller.clear();
+	private static void appendHexDigits(StringBuilder out, int value, int digits) {
+		for (int shift = digits * 4 - 4; shift >= 0; shift -= 4)
+			out.append(HEX_DIGITS[(value >>> shift) & 0xF]);
 	}
 
 	public static boolean isDirective(String directiveMnemonic) {
@@ -87,8 +68,8 @@ public class Utility {
 		return false;
 	}
 
-	public static boolean isLabel(String labelName) {
-		if (CommandInfo.labelList.contains(labelName.toUpperCase()))
+	public static boolean isLabel(String labelName, AssemblySession session) {
+		if (session.getLabelIndex().contains(labelName.toUpperCase()))
 			return true;
 		return false;
 
@@ -98,47 +79,192 @@ public class Utility {
 		return String.valueOf(value).length();
 	}
 
+	/**
+	 * @return true if Long.parseLong would accept the string.
+	 */
 	public static boolean isNumeric(String str) {
-		try {
-			Long.parseLong(str);
-			return true;
-		} catch (NumberFormatException e) {
-			return false;
-		}
+		return str != null && isLong(str, 0, str.length(), 10);
+	}
+
+	/**
+	 * @return true if Long.parseLong would accept the characters from index
+	 *         "from" up to "to".
+	 */
+	public static boolean isNumeric(CharSequence str, int from, int to) {
+		return isLong(str, from, to, 10);
 	}
 
 	private static boolean validateWordFormat(String operand) {
 		if (operand.length() == 5) {
-			if (!isNumeric(operand.substring(3, 4)))
+			if (!isNumeric(operand, 3, 4))
 				return false;
 		}
 		if (operand.charAt(3) == '-') {
-			if (!isNumeric(operand.substring(4, operand.length() - 1)))
+			if (!isNumeric(operand, 4, operand.length() - 1))
 				return false;
 		} else {
-			if (!isNumeric(operand.substring(3, operand.length() - 1)))
+			if (!isNumeric(operand, 3, operand.length() - 1))
 				return false;
 		}
 		return true;
 	}
 
+	/**
+	 * @return true if Long.parseLong(operand, 16) would accept the string.
+	 */
 	public static boolean isHex(String operand) {
-		try {
-			Long.parseLong(operand, 16);
-			return true;
-		} catch (NumberFormatException e) {
-			return false;
-		}
+		return operand != null && isLong(operand, 0, operand.length(), 16);
+	}
+
+	/**
+	 * @return true if Long.parseLong(operand, 16) would accept the characters from
+	 *         index "from" up to "to".
+	 */
+	public static boolean isHex(CharSequence operand, int from, int to) {
+		return isLong(operand, from, to, 16);
 	}
 
 	private static boolean validateHexFormat(String operand) {
 		for (int i = 3; i < operand.length() - 1; i++) {
-			if (!isHex(operand.substring(i, i + 1)))
+			if (Character.digit(operand.charAt(i), 16) < 0)
+				return false;
+		}
+		return true;
+	}
+
+	/*
+	 * the checks of Long.parseLong without building the number or throwing:
+	 * optional sign, at least one digit and no overflow.
+	 */
+	private static boolean isLong(CharSequence s, int from, int to, int radix) {
+		if (from >= to)
+			return false;
+		int i = from;
+		long limit = -Long.MAX_VALUE;
+		char first = s.charAt(i);
+		if (first < '0') {
+			if (first == '-')
+				limit = Long.MIN_VALUE;
+			else if (first != '+')
+				return false;
+			if (to - from == 1)
+				return false;
+			i++;
+		}
+		long multiplyMin = limit / radix;
+		long result = 0;
+		while (i < to) {
+			int digit = Character.digit(s.charAt(i++), radix);
+			if (digit < 0 || result < multiplyMin)
+				return false;
+			result *= radix;
+			if (result < limit + digit)
 				return false;
+			result -= digit;
 		}
 		return true;
 	}
 
+	/**
+	 * @return true if Double.parseDouble would accept the string: decimal or hex
+	 *         floating point with optional exponent and f/d suffix, NaN or
+	 *         Infinity, surrounded by any white space.
+	 */
+	public static boolean isFloatingPoint(String str) {
+		if (str == null)
+			return false;
+		int from = 0;
+		int to = str.length();
+		// same white space as String.trim()
+		while (from < to && str.charAt(from) <= ' ')
+			from++;
+		while (to > from && str.charAt(to - 1) <= ' ')
+			to--;
+		if (from == to)
+			return false;
+		int i = from;
+		char c = str.charAt(i);
+		if (c == '+' || c == '-')
+			i++;
+		if (str.startsWith("NaN", i))
+			return i + 3 == to;
+		if (str.startsWith("Infinity", i))
+			return i + 8 == to;
+		if (i + 1 < to && str.charAt(i) == '0' && (str.charAt(i + 1) == 'x' || str.charAt(i + 1) == 'X'))
+			return isHexFloatingPoint(str, i + 2, to);
+
+		int digits = 0;
+		while (i < to && isAsciiDigit(str.charAt(i))) {
+			i++;
+			digits++;
+		}
+		if (i < to && str.charAt(i) == '.') {
+			i++;
+			while (i < to && isAsciiDigit(str.charAt(i))) {
+				i++;
+				digits++;
+			}
+		}
+		if (digits == 0)
+			return false;
+		if (i < to && (str.charAt(i) == 'e' || str.charAt(i) == 'E')) {
+			i = skipExponent(str, i + 1, to);
+			if (i < 0)
+				return false;
+		}
+		return isFloatSuffix(str, i, to);
+	}
+
+	/*
+	 * 0x is already read: hex digits with an optional point, then a binary
+	 * exponent which is required.
+	 */
+	private static boolean isHexFloatingPoint(String str, int i, int to) {
+		int digits = 0;
+		while (i < to && isAsciiHexDigit(str.charAt(i))) {
+			i++;
+			digits++;
+		}
+		if (i < to && str.charAt(i) == '.') {
+			i++;
+			while (i < to && isAsciiHexDigit(str.charAt(i))) {
+				i++;
+				digits++;
+			}
+		}
+		if (digits == 0 || i == to || (str.charAt(i) != 'p' && str.charAt(i) != 'P'))
+			return false;
+		i = skipExponent(str, i + 1, to);
+		return i >= 0 && isFloatSuffix(str, i, to);
+	}
+
+	/*
+	 * @return the index after the exponent digits, -1 if there are none.
+	 */
+	private static int skipExponent(String str, int i, int to) {
+		if (i < to && (str.charAt(i) == '+' || str.charAt(i) == '-'))
+			i++;
+		int start = i;
+		while (i < to && isAsciiDigit(str.charAt(i)))
+			i++;
+		return i == start ? -1 : i;
+	}
+
+	private static boolean isFloatSuffix(String str, int i, int to) {
+		if (i == to)
+			return true;
+		char c = str.charAt(i);
+		return i + 1 == to && (c == 'f' || c == 'F' || c == 'd' || c == 'D');
+	}
+
+	private static boolean isAsciiDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isAsciiHexDigit(char c) {
+		return isAsciiDigit(c) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+	}
+
 	public static boolean isLiteral(String operand) {
 		if (operand.charAt(0) != '=') {
 			return false;
@@ -152,8 +278,7 @@ public class Utility {
 			return false;
 		}
 
-		operand = operand.toUpperCase();
-		char dataType = operand.charAt(1);
+		char dataType = Character.toUpperCase(operand.charAt(1));
 		switch (dataType) {
 		case 'W':
 			return validateWordFormat(operand);
@@ -170,90 +295,30 @@ public class Utility {
 	}
 
 	public static String getSpaces(int count) {
-		String s = "";
-		for (int i = 0; i < count; i++)
-			s += " ";
-		return s;
+		return repeat(' ', count);
 	}
 
 	public static String getZeros(int count) {
-		String s = "";
-		for (int i = 0; i < count; i++)
-			s += "0";
-		return s;
-	}
-
-	public static String getMatch(String input, String regex) {
-		Pattern reg = Pattern.compile(regex);
-		Matcher m = reg.matcher(input);
-		if (m.find()) {
-			return m.group(1);
-		}
-		return "";
+		return repeat('0', count);
 	}
 
-	public static ArrayList<String> getMatches(String input, String regex) {
-		ArrayList<String> matchArr = new ArrayList<>();
-		Pattern reg = Pattern.compile(regex);
-
-		Matcher m = reg.matcher(input);
-		while (m.find()) {
-			matchArr.add(m.group(1));
-		}
-		return matchArr;
+	private static String repeat(char c, int count) {
+		if (count <= 0)
+			return "";
+		char[] chars = new char[count];
+		Arrays.fill(chars, c);
+		return new String(chars);
 	}
 
-	public static int getNumberOfMatches(String input, String regex) {
-		/* compile the regex using Java regex engine */
-		Pattern reg = Pattern.compile(regex);
-		int numSpaces = 0;
-		Matcher m = reg.matcher(input);
-
-		while (m.find()) {
-			numSpaces++;
-		}
-		return numSpaces;
-	}
-
-	public static String removeExtraSpaces(String input) {
-		/*
-		 * keep matching spaces if there are 3 or more spaces don't trim them and return
-		 * e.g:_LABEL_LDA__ (underscores are spaces) and also return if label end has
-		 * letter e.g : LABEL__LDA
-		 */
-		int numSpaces = getNumberOfMatches(input, "(\\s+)");
-		if (numSpaces >= 3 || input.charAt(input.length() - 1) != ' ')
-			return input;
-		/*
-		 * get the index for first char after several spaces to keep misplaced label for
-		 * example exist
-		 */
-
-		int firstCharIdx = 0;
-		for (int i = 0; i < input.length(); i++) {
-			firstCharIdx = i;
-			if (input.charAt(i) != ' ')
-				break;
-
-		}
-		String s = "";
-		if (firstCharIdx == input.length() - 1)
-			return s;
-		if (firstCharIdx > 0)
-			s = input.substring(0, firstCharIdx);
-		for (int i = firstCharIdx; i < input.length(); i++) {
-			if (input.charAt(i) == ' ')
-				break;
-			s += input.charAt(i);
-		}
-		return s;
+	public static void writeFile(String s, String filePath) {
+		writeFile(s, filePath, Charset.defaultCharset());
 	}
 
-	public static void writeFile(String s, String filePath) {
+	public static void writeFile(String s, String filePath, Charset charset) {
 		File file = new File(filePath);
 
 		try {
-			BufferedWriter bw = new BufferedWriter(new FileWriter(file));
+			BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), charset));
 			bw.write(s);
 			bw.close();
 		} catch (Exception e) {
@@ -298,61 +363,86 @@ public class Utility {
 		return false;
 	}
 
+	/**
+	 * splits an expression in one scan: spaces are dropped, every operator is a
+	 * part of its own and so is every run of characters between them.
+	 */
 	public static ArrayList<String> splitExpression(String expression) {
-		// Remove spaces from expression
-		ArrayList<String> matches = Utility.getMatches(expression, "(\\S+)");
-		// Recollect expression
-		StringBuilder newExpression = new StringBuilder();
-		for (String str : matches) {
-			newExpression.append(str);
+		ArrayList<String> parts = new ArrayList<>();
+		StringBuilder part = new StringBuilder();
+		int length = expression.length();
+		for (int i = 0; i < length; i++) {
+			char c = expression.charAt(i);
+			if (isRegexSpace(c))
+				continue;
+			if (isOperator(c)) {
+				if (part.length() > 0) {
+					parts.add(part.toString());
+					part.setLength(0);
+				}
+				parts.add(String.valueOf(c));
+			} else {
+				part.append(c);
+			}
 		}
-		// Split expression on operations
-		String[] results = newExpression.toString().split("(?<=[-+*/()])|(?=[-+*/()])");
-		return new ArrayList<>(Arrays.asList(results));
+		// a split always gives at least one part, empty for an empty expression
+		if (part.length() > 0 || parts.isEmpty())
+			parts.add(part.toString());
+		return parts;
+	}
+
+	/* the characters \s matches */
+	private static boolean isRegexSpace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
 	}
 
-	public static boolean verifyExpression(ArrayList<String> expressionList) {
+	public static boolean verifyExpression(ArrayList<String> expressionList, AssemblySession session) {
 		for (String s : expressionList) {
 			if (isOperator(s))
 				continue;
-			if (!isLabel(s.toUpperCase()) && !isNumeric(s))
+			if (!isLabel(s.toUpperCase(), session) && !isNumeric(s))
 				return false;
 		}
 		return true;
 	}
 
-	public static void evaluateLabels(ArrayList<String> expressionList) {
+	public static void evaluateLabels(ArrayList<String> expressionList, AssemblySession session) {
 		for (String s : expressionList) {
-			if (isLabel(s)) {
+			if (isLabel(s, session)) {
 				// Replace label with its address
-				int value = hexToDecimal(SymbolTable.symbolTable.get(s).getAddress());
+				int value = session.getSymbolTable().get(s).getAddress();
 				expressionList.set(expressionList.indexOf(s), String.valueOf(value));
 			}
 		}
 	}
 
 	public static boolean validateNumericExpression(ArrayList<String> expressionList) {
-		// first element in list is numeric not operator
-		if (isOperator(expressionList.get(0)))
-			return false;
-		// last element in list is numeric not operator
-		if (isOperator(expressionList.get(expressionList.size() - 1)))
-			return false;
-		// No consecutive operands => impossible to have consecutive operands due to
-		// split algorithm
-		// No consecutive operators => # of operators = # of numbers - 1
-		int numbers = 0;
-		int operators = 0;
+		// walk the grammar of ExpressionEvaluator: numbers and operators alternate,
+		// '(' and unary '-' may only come where a number is expected
+		boolean expectNumber = true;
+		int depth = 0;
 		for (String s : expressionList) {
-			if (isOperator(s) && !s.equals("(") && !s.equals(")"))
-				operators++;
-			else
-				numbers++;
+			if (expectNumber) {
+				if (s.equals("("))
+					depth++;
+				else if (s.equals("-"))
+					continue;
+				else if (isOperator(s))
+					return false;
+				else
+					expectNumber = false;
+			} else {
+				if (s.equals(")")) {
+					if (--depth < 0)
+						return false;
+				} else if (isOperator(s) && !s.equals("(")) {
+					expectNumber = true;
+				} else {
+					return false;
+				}
+			}
 		}
-		// noinspection RedundantIfStatement
-		if (operators >= numbers)
-			return false;
-		return true;
+		return !expectNumber && depth == 0;
 	}
 
 	public static String getNumericExpression(ArrayList<String> expressionList) {
@@ -380,24 +470,52 @@ public class Utility {
 		}
 	}
 
-	public static boolean isExpression(String operand) {
+	public static boolean isExpression(String operand, AssemblySession session) {
+		// without an operator the split below is the operand alone
+		if (!containsOperator(operand))
+			return false;
 		ArrayList<String> operandComponents = splitExpression(operand);
 		// If operand is not an expression, size after splitting will be 1
 		if (operandComponents.size() == 1)
 			return false;
 		// noinspection RedundantIfStatement
-		if (verifyExpression(operandComponents)) {
+		if (verifyExpression(operandComponents, session)) {
 			return true;
 		}
 		return false;
 	}
 
+	private static boolean containsOperator(String operand) {
+		int length = operand.length();
+		for (int i = 0; i < length; i++) {
+			if (isOperator(operand.charAt(i)))
+				return true;
+		}
+		return false;
+	}
+
+	private static boolean isOperator(char c) {
+		switch (c) {
+		case '-':
+		case '+':
+		case '*':
+		case '/':
+		case '(':
+		case ')':
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * @return the value of the expression as a 24-bit word in hex, the radix
+	 *         every operand is read back in, "error" if it cannot be evaluated.
+	 */
 	public static String evaluateExpression(String expression) {
-		ScriptEngineManager mgr = new ScriptEngineManager();
-		ScriptEngine engine = mgr.getEngineByName("JavaScript");
 		try {
-			return String.valueOf(engine.eval(expression));
-		} catch (ScriptException e) {
+			return convertToHexa(ExpressionEvaluator.evaluate(expression) & 0xFFFFFF);
+		} catch (IllegalArgumentException | ArithmeticException e) {
 			System.out.println("Expression evaluation failed!!!");
 			return "error";
 		}
@@ -3,8 +3,14 @@ package view;
 import java.io.File;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 import controller.Controller;
+import javafx.animation.PauseTransition;
+import javafx.concurrent.Task;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
@@ -13,9 +19,11 @@ import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.Label;
 import javafx.scene.control.MenuItem;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TextArea;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import model.SourceReader;
 import model.utility.Utility;
 
@@ -28,14 +36,33 @@ public class Assembler {
 	// public MenuItem saveFile;
 	// public MenuItem saveAsFile;
 	public MenuItem assemble;
+	public MenuItem cancel;
+	public CheckMenuItem assembleAsYouType;
 	public CheckMenuItem restricted;
 	public Label restrictedMsgLabel;
+	public Label statusLabel;
+	public ProgressBar progressBar;
 
 	public TextArea textArea;
 
 	private Controller controller = new Controller();
 	private String path;
 
+	// pause in typing after which the program is assembled as it is
+	private static final double TYPING_DELAY = 400;
+	private final PauseTransition typingPause = new PauseTransition(Duration.millis(TYPING_DELAY));
+
+	// every use of the controller runs on this thread, one after the other
+	private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "assembler");
+		thread.setDaemon(true);
+		return thread;
+	});
+	// the assembly that is running or waiting for the worker, null if there is none
+	private Task<Boolean> assembly;
+	// false while the text area shows a result instead of the source
+	private boolean showingSource = true;
+
 	public void initialize(Stage primaryStage) {
 
 		window = primaryStage;
@@ -54,6 +81,23 @@ public class Assembler {
 		controller.prepareData();
 	}
 
+	/**
+	 * called by the FXMLLoader once the fields are set.
+	 */
+	public void initialize() {
+		typingPause.setOnFinished(event -> {
+			if (!textArea.getText().equals(""))
+				startAssembly(true);
+		});
+		textArea.textProperty().addListener((observable, oldText, newText) -> {
+			if (showingSource && assembleAsYouType.isSelected()) {
+				// the running assembly is of text that is gone
+				cancelAssembly();
+				typingPause.playFromStart();
+			}
+		});
+	}
+
 	private void showAssembleMsgDialog(boolean noErrors) {
 
 		Alert alert = new Alert(AlertType.INFORMATION);
@@ -68,16 +112,116 @@ public class Assembler {
 
 	public void assembleOnAction() {
 		if (!textArea.getText().equalsIgnoreCase("")) {
-			Utility.writeFile("", "res/LIST/listFile.txt");
-			Utility.writeFile("", "res/LIST/symTable.txt");
-			Utility.writeFile("", "res/LIST/objFile.o");
-			controller.assemble(textArea.getText(), restricted.isSelected());
-			showAssembleMsgDialog(controller.isNoErrors());
+			typingPause.stop();
+			startAssembly(false);
 		} else {
 			emptyTextAreaError();
 		}
 	}
 
+	public void cancelOnAction() {
+		typingPause.stop();
+		cancelAssembly();
+	}
+
+	/**
+	 * assembles the text of the text area on the worker thread, in place of the
+	 * assembly that is running.
+	 * 
+	 * @param asTyped
+	 *            true to reassemble from the last assembly without a dialog at
+	 *            the end, false to assemble from scratch as the Assemble item
+	 *            does.
+	 */
+	private void startAssembly(boolean asTyped) {
+		cancelAssembly();
+		String program = textArea.getText();
+		boolean isRestricted = restricted.isSelected();
+		Task<Boolean> task = new Task<Boolean>() {
+			@Override
+			protected Boolean call() {
+				controller.setProgressListener(done -> updateProgress(done, 1));
+				if (asTyped) {
+					controller.reassemble(program, isRestricted);
+				} else {
+					Utility.writeFile("", "res/LIST/listFile.txt");
+					Utility.writeFile("", "res/LIST/symTable.txt");
+					Utility.writeFile("", "res/LIST/objFile.o");
+					controller.assemble(program, isRestricted);
+				}
+				return controller.isNoErrors();
+			}
+		};
+		// an assembly replaced after it returned may still be handed to the
+		// application thread, only the current one ends the run
+		task.setOnSucceeded(event -> {
+			if (assembly != task)
+				return;
+			boolean noErrors = task.getValue();
+			assemblyEnded(noErrors ? "Successful Assembly" : "Incomplete Assembly");
+			if (!asTyped)
+				showAssembleMsgDialog(noErrors);
+		});
+		task.setOnFailed(event -> {
+			if (assembly == task)
+				assemblyEnded("Assembly failed");
+		});
+		task.setOnCancelled(event -> {
+			if (assembly == task)
+				assemblyEnded("Assembly cancelled");
+		});
+		assembly = task;
+		progressBar.progressProperty().bind(task.progressProperty());
+		progressBar.setVisible(true);
+		cancel.setDisable(false);
+		statusLabel.setText("Assembling...");
+		worker.execute(task);
+	}
+
+	/**
+	 * stops the assembly that is running, its result is never shown.
+	 */
+	private void cancelAssembly() {
+		if (assembly != null)
+			assembly.cancel();
+	}
+
+	private void assemblyEnded(String message) {
+		assembly = null;
+		progressBar.progressProperty().unbind();
+		progressBar.setVisible(false);
+		cancel.setDisable(true);
+		statusLabel.setText(message);
+	}
+
+	/**
+	 * runs work on the worker thread, after the assembly before it, and hands
+	 * its result to the JavaFX application thread.
+	 */
+	private <T> void runOnWorker(Callable<T> work, Consumer<T> then) {
+		Task<T> task = new Task<T>() {
+			@Override
+			protected T call() throws Exception {
+				return work.call();
+			}
+		};
+		task.setOnSucceeded(event -> then.accept(task.getValue()));
+		worker.execute(task);
+	}
+
+	/**
+	 * shows a result in place of the source, it is not assembled as typed.
+	 */
+	private void showResult(String result) {
+		showingSource = false;
+		textArea.setText(result);
+	}
+
+	private void showSource(String source) {
+		showingSource = true;
+		textArea.setText(source);
+	}
+
 	private void emptyTextAreaError() {
 		Alert alert = new Alert(AlertType.INFORMATION);
 		alert.setTitle("Error");
@@ -90,7 +234,7 @@ public class Assembler {
 
 	public void showListFile() {
 
-		textArea.setText(controller.getListFile());
+		runOnWorker(controller::getListFile, this::showResult);
 	}
 
 	public void loadFileOnAction() {
@@ -102,39 +246,37 @@ public class Assembler {
 		fileChooser.setInitialDirectory(new File(currentPath));
 		File file = fileChooser.showOpenDialog(window);
 		if (file != null) {
-			path = file.getAbsolutePath();
-			textArea.setText(controller.loadFile(path));
+			String chosen = file.getAbsolutePath();
+			path = chosen;
+			runOnWorker(() -> controller.loadFile(chosen), this::showSource);
 		}
 	}
 
 	public void clearResultOnAction() {
-		ArrayList<String> arr = SourceReader.getInstance().readFile("res/functionality/ASSEMBLING");
-		String append = "";
-		for (String s : arr) {
-			// noinspection StringConcatenationInLoop
-			append += s + "\n";
-		}
-		textArea.setText(append);
+		runOnWorker(controller::getSource, this::showSource);
 	}
 
 	public void showSymbolTable() {
-		ArrayList<String> arr = SourceReader.getInstance().readFile("res/LIST/symTable.txt");
-		String append = "";
-		for (String s : arr) {
-			// noinspection StringConcatenationInLoop
-			append += s + "\n";
-		}
-		textArea.setText(append);
+		runOnWorker(() -> readOutput("res/LIST/symTable.txt"), this::showResult);
 	}
 
 	public void showObjectFile() {
-		ArrayList<String> arr = SourceReader.getInstance().readFile("res/LIST/objFile.o");
+		runOnWorker(() -> readOutput("res/LIST/objFile.o"), this::showResult);
+	}
+
+	/**
+	 * @return an output file of the last assembly, written first if it was
+	 *         reassembled as typed.
+	 */
+	private String readOutput(String path) {
+		controller.writeOutputs();
+		ArrayList<String> arr = SourceReader.getInstance().readFile(path);
 		String append = "";
 		for (String s : arr) {
 			// noinspection StringConcatenationInLoop
 			append += s + "\n";
 		}
-		textArea.setText(append);
+		return append;
 	}
 
 	public void saveAsOnAction() {
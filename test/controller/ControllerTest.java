@@ -0,0 +1,107 @@
+package controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Assembles whole programs and checks the files they give. Run from the
+ * project root, the tables are read from res, with assertions enabled (-ea) so
+ * InstructionEncoder checks every field it is given.
+ */
+public class ControllerTest {
+
+	private Path outputDirectory;
+	private Controller controller;
+
+	@Before
+	public void setUp() throws IOException {
+		outputDirectory = Files.createTempDirectory("sicxe-test");
+		controller = new Controller();
+		controller.prepareData();
+		controller.setOutputPaths(outputDirectory.resolve("listFile.txt").toString(),
+				outputDirectory.resolve("symTable.txt").toString(), outputDirectory.resolve("objFile.o").toString());
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = outputDirectory.toFile().listFiles();
+		if (files != null)
+			for (File file : files)
+				file.delete();
+		outputDirectory.toFile().delete();
+	}
+
+	@Test
+	public void equExampleEvaluatesExpressionsToAddresses() throws IOException {
+		controller.assemble(readExample("EQU.txt"), true);
+		assertTrue(controller.isNoErrors());
+		// ASD EQU 3+SSS is 3 + 100B, ALPHA+45 and BETA+12 are reached PC relative
+		assertTrue(readOutput("symTable.txt").contains("ASD         100E\n"));
+		assertEquals("H^PROG1 ^001000^00001E\n"
+				+ "T^001000^19^0320126F201090040F203B980403201194400F200703000006\n" + "E^001000",
+				readOutput("objFile.o"));
+	}
+
+	@Test
+	public void numbersThatFitTheirFieldAreEncodedAsTheyAre() throws IOException {
+		controller.assemble("PROG START 1000\n LDA #999\n +LDA #99999\n STA 999\n END PROG\n", false);
+		assertTrue(controller.isNoErrors());
+		assertEquals("H^PROG  ^001000^000009\n" + "T^001000^0A^010999011999990F0999\n" + "E^001000",
+				readOutput("objFile.o"));
+	}
+
+	@Test
+	public void numbersBeyondTheirFieldAreDisplacementOverflows() throws IOException {
+		controller.assemble("PROG START 1000\n LDA #1000\n +LDA #100000\n STA 1000\n END PROG\n", false);
+		assertFalse(controller.isNoErrors());
+		String listing = readOutput("listFile.txt");
+		int overflows = listing.split("ERROR: Displacement overflow!", -1).length - 1;
+		assertEquals(3, overflows);
+	}
+
+	@Test
+	public void reservedWordsStartANewTextRecord() throws IOException {
+		controller.assemble("PROG START 1000\nA LDA B\nB RESW 3\n STA A\n END PROG\n", false);
+		assertTrue(controller.isNoErrors());
+		// RESW 3 leaves 1003 to 100B out, STA goes to 100C
+		String objectCode = readOutput("objFile.o");
+		assertEquals("T^001000^03^032000\n" + "T^00100C^03^0F2FF1\n" + "E^001000",
+				objectCode.substring(objectCode.indexOf('\n') + 1));
+	}
+
+	@Test
+	public void examplesNeverGiveTheEncoderAFieldThatDoesNotFit() throws IOException {
+		boolean assertions = false;
+		assert assertions = true;
+		assertTrue("run with -ea", assertions);
+		try (DirectoryStream<Path> examples = Files.newDirectoryStream(Paths.get("res/Examples"), "*.txt")) {
+			for (Path example : examples) {
+				String program = new String(Files.readAllBytes(example), StandardCharsets.ISO_8859_1);
+				boolean restricted = !example.getFileName().toString().startsWith("free format");
+				// an out of range field fails the assert of InstructionEncoder
+				controller.assemble(program, restricted);
+			}
+		}
+	}
+
+	private static String readExample(String name) throws IOException {
+		return new String(Files.readAllBytes(Paths.get("res/Examples", name)), StandardCharsets.ISO_8859_1);
+	}
+
+	private String readOutput(String name) throws IOException {
+		return new String(Files.readAllBytes(outputDirectory.resolve(name)), StandardCharsets.ISO_8859_1);
+	}
+}
@@ -0,0 +1,70 @@
+package model.utility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import controller.Controller;
+
+/**
+ * Assembles generated programs, which must be valid at any size. Run from the
+ * project root, the tables are read from res.
+ */
+public class ProgramGeneratorTest {
+
+	// large enough to need the address space and reservation limits
+	private static final int LINES = 300000;
+
+	private Path outputDirectory;
+	private Controller controller;
+
+	@Before
+	public void setUp() throws IOException {
+		outputDirectory = Files.createTempDirectory("sicxe-test");
+		controller = new Controller();
+		controller.prepareData();
+		controller.setOutputPaths(outputDirectory.resolve("listFile.txt").toString(),
+				outputDirectory.resolve("symTable.txt").toString(), outputDirectory.resolve("objFile.o").toString());
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = outputDirectory.toFile().listFiles();
+		if (files != null)
+			for (File file : files)
+				file.delete();
+		outputDirectory.toFile().delete();
+	}
+
+	@Test
+	public void largeRestrictedProgramAssemblesWithoutErrors() throws IOException {
+		assembleGenerated(true);
+	}
+
+	@Test
+	public void largeFreeFormatProgramAssemblesWithoutErrors() throws IOException {
+		assembleGenerated(false);
+	}
+
+	private void assembleGenerated(boolean restricted) throws IOException {
+		String program = new ProgramGenerator(42).generate(LINES, restricted);
+		assertEquals(LINES, program.split("\n").length);
+		controller.assemble(program, restricted);
+		assertTrue(controller.isNoErrors());
+		// H^name  ^start^length, the program ends inside the 20-bit address space
+		String header = new String(Files.readAllBytes(outputDirectory.resolve("objFile.o")),
+				StandardCharsets.ISO_8859_1).split("\n")[0];
+		String[] fields = header.split("\\^");
+		int end = Integer.parseInt(fields[2], 16) + Integer.parseInt(fields[3], 16);
+		assertTrue(header, end <= 0x100000);
+	}
+}